@@ -0,0 +1,66 @@
+package theater.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import theater.Invoice;
+import theater.InvoiceAggregator;
+import theater.Performance;
+import theater.PlayCatalog;
+
+/**
+ * Measures aggregating a million performances by play, type and customer, sequentially and in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private static final int PERFORMANCES_PER_INVOICE = 100;
+    private static final int CUSTOMERS = 1000;
+
+    @Param({"10000"})
+    private int invoices;
+
+    private PlayCatalog catalog;
+    private List<Invoice> data;
+
+    @Setup
+    public void setUp() {
+        catalog = new PlayCatalog(InvoiceData.plays());
+        final List<Performance> performances = new ArrayList<>();
+        for (Performance performance : InvoiceData.invoice(PERFORMANCES_PER_INVOICE, "mixed").getPerformances()) {
+            performances.add(catalog.performance(performance.getPlayID(), performance.getAudience()));
+        }
+        data = new ArrayList<>(invoices);
+        for (int i = 0; i < invoices; i++) {
+            data.add(new Invoice("customer-" + i % CUSTOMERS, performances));
+        }
+    }
+
+    @Benchmark
+    public InvoiceAggregator sequential() {
+        return InvoiceAggregator.aggregate(data.stream(), catalog);
+    }
+
+    @Benchmark
+    public InvoiceAggregator parallel() {
+        return InvoiceAggregator.aggregate(data.parallelStream(), catalog);
+    }
+}
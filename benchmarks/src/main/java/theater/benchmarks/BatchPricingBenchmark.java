@@ -0,0 +1,78 @@
+package theater.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import theater.AbstractPerformanceCalculator;
+import theater.BatchPricer;
+
+/**
+ * Compares pricing an array of audiences of one play type with the branch-free batch kernel
+ * against calling the type's calculator once per performance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPricingBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    private int size;
+
+    @Param({"tragedy", "comedy", "pastoral"})
+    private String type;
+
+    private int[] audiences;
+    private int[] amounts;
+    private int[] credits;
+    private AbstractPerformanceCalculator calculator;
+    private BatchPricer pricer;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        audiences = new int[size];
+        for (int i = 0; i < size; i++) {
+            // straddles every threshold so that a branchy loop cannot predict it
+            audiences[i] = random.nextInt(60);
+        }
+        amounts = new int[size];
+        credits = new int[size];
+        calculator = AbstractPerformanceCalculator.createPerformanceCalculator(type);
+        pricer = BatchPricer.forType(type);
+    }
+
+    @Benchmark
+    public void calculatorLoop(Blackhole blackhole) {
+        long totalAmount = 0;
+        long totalCredits = 0;
+        for (int i = 0; i < size; i++) {
+            amounts[i] = calculator.amountFor(audiences[i]);
+            credits[i] = calculator.volumeCredits(audiences[i]);
+            totalAmount += amounts[i];
+            totalCredits += credits[i];
+        }
+        blackhole.consume(totalAmount);
+        blackhole.consume(totalCredits);
+    }
+
+    @Benchmark
+    public void batchKernel(Blackhole blackhole) {
+        blackhole.consume(pricer.price(audiences, amounts, credits, size));
+    }
+}
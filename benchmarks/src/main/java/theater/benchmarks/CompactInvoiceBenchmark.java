@@ -0,0 +1,91 @@
+package theater.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import theater.CompactInvoiceReader;
+import theater.CompactInvoiceWriter;
+import theater.Invoice;
+import theater.InvoiceReader;
+import theater.Performance;
+import theater.PlayCatalog;
+import theater.StatementPrinter;
+
+/**
+ * Compares re-rendering an archive of invoices read from JSON against reading them from the
+ * compact binary format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactInvoiceBenchmark {
+
+    private static final int PERFORMANCES_PER_INVOICE = 20;
+
+    @Param({"1000", "10000"})
+    private int invoices;
+
+    private PlayCatalog catalog;
+    private String json;
+    private ByteBuffer compact;
+
+    @Setup
+    public void setUp() throws IOException {
+        catalog = new PlayCatalog(InvoiceData.plays());
+        final Invoice invoice = InvoiceData.invoice(PERFORMANCES_PER_INVOICE, "mixed");
+        final StringBuilder text = new StringBuilder("[");
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final CompactInvoiceWriter writer = new CompactInvoiceWriter(bytes, catalog);
+        for (int i = 0; i < invoices; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append("{\"customer\":\"BigCo\",\"performances\":[");
+            for (int j = 0; j < invoice.getPerformances().size(); j++) {
+                final Performance performance = invoice.getPerformances().get(j);
+                if (j > 0) {
+                    text.append(',');
+                }
+                text.append("{\"playID\":\"").append(performance.getPlayID())
+                        .append("\",\"audience\":").append(performance.getAudience()).append('}');
+            }
+            text.append("]}");
+            writer.write(invoice);
+        }
+        json = text.append(']').toString();
+        compact = ByteBuffer.allocateDirect(bytes.size()).put(bytes.toByteArray());
+    }
+
+    @Benchmark
+    public void fromJson(Blackhole blackhole) {
+        for (Invoice invoice : new InvoiceReader(new StringReader(json), catalog)) {
+            blackhole.consume(new StatementPrinter(invoice, catalog).statement());
+        }
+    }
+
+    @Benchmark
+    public void fromCompact(Blackhole blackhole) throws IOException {
+        for (Invoice invoice : new CompactInvoiceReader(compact.duplicate().flip(), catalog)) {
+            blackhole.consume(new StatementPrinter(invoice, catalog).statement());
+        }
+    }
+}
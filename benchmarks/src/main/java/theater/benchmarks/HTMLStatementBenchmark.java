@@ -0,0 +1,71 @@
+package theater.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import theater.HTMLStatementPrinter;
+import theater.Invoice;
+import theater.Play;
+import theater.StatementPrinter;
+
+/**
+ * Compares the HTML statement against the plain-text statement, both as strings and streamed to a stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HTMLStatementBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private StatementPrinter textPrinter;
+    private StatementPrinter htmlPrinter;
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setUp() {
+        final Map<String, Play> plays = InvoiceData.plays();
+        final Invoice invoice = InvoiceData.invoice(size, "mixed");
+        textPrinter = new StatementPrinter(invoice, plays);
+        htmlPrinter = new HTMLStatementPrinter(invoice, plays);
+    }
+
+    @Benchmark
+    public String textStatement() {
+        return textPrinter.statement();
+    }
+
+    @Benchmark
+    public String htmlStatement() {
+        return htmlPrinter.statement();
+    }
+
+    @Benchmark
+    public void textWriteStatement() throws IOException {
+        textPrinter.writeStatement(sink, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void htmlWriteStatement() throws IOException {
+        htmlPrinter.writeStatement(sink, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package theater.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import theater.Invoice;
+import theater.Performance;
+import theater.Play;
+
+/**
+ * Generates plays and invoices shaped like {@code plays.json}/{@code invoices.json}
+ * and {@code new_plays.json}/{@code new_invoices.json} for the benchmarks.
+ */
+public final class InvoiceData {
+
+    /**
+     * Play ids per play type, in the order tragedy, comedy, history, pastoral.
+     */
+    private static final String[][] PLAY_IDS = {
+        {"hamlet", "othello"},
+        {"as-like"},
+        {"henry-v"},
+        {"winters-tale"},
+    };
+    private static final String[] TYPES = {"tragedy", "comedy", "history", "pastoral"};
+    private static final long SEED = 207L;
+    private static final int MAX_AUDIENCE = 80;
+
+    private InvoiceData() {
+        // utility class
+    }
+
+    /**
+     * Builds the play catalog covering every play type.
+     *
+     * @return plays keyed by play id
+     */
+    public static Map<String, Play> plays() {
+        final Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        plays.put("winters-tale", new Play("The Winter's Tale", "pastoral"));
+        return plays;
+    }
+
+    /**
+     * Builds a reproducible invoice.
+     *
+     * @param size number of performances
+     * @param mix  a play type, or {@code "mixed"} for all types in round-robin order
+     * @return the invoice
+     */
+    public static Invoice invoice(int size, String mix) {
+        final Random random = new Random(SEED);
+        final List<Performance> performances = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final String[] ids = PLAY_IDS[typeIndex(mix, i)];
+            performances.add(new Performance(ids[i % ids.length], random.nextInt(MAX_AUDIENCE + 1)));
+        }
+        return new Invoice("BigCo", performances);
+    }
+
+    private static int typeIndex(String mix, int position) {
+        int result = position % TYPES.length;
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(mix)) {
+                result = i;
+            }
+        }
+        return result;
+    }
+}
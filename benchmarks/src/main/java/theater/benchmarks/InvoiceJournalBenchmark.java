@@ -0,0 +1,72 @@
+package theater.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import theater.Invoice;
+import theater.InvoiceJournal;
+import theater.PlayCatalog;
+
+/**
+ * Measures how many invoices per second the journal takes: buffered appends, and appends that each
+ * wait to be durable, sharing fsyncs through group commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceJournalBenchmark {
+
+    private static final int PERFORMANCES_PER_INVOICE = 5;
+
+    private Path directory;
+    private InvoiceJournal journal;
+    private Invoice invoice;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new InvoiceJournal(directory, new PlayCatalog(InvoiceData.plays()));
+        invoice = InvoiceData.invoice(PERFORMANCES_PER_INVOICE, "mixed");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+        return journal.append(invoice);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long appendAndSync() throws IOException {
+        final long offset = journal.append(invoice);
+        journal.sync(offset);
+        return offset;
+    }
+}
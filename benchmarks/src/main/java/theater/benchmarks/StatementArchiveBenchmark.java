@@ -0,0 +1,82 @@
+package theater.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import theater.Invoice;
+import theater.PlayCatalog;
+import theater.StatementArchive;
+import theater.StatementArchiveWriter;
+import theater.StatementPrinter;
+
+/**
+ * Measures looking statements up by customer in a memory-mapped archive. Run with {@code -prof gc}
+ * to see that a lookup allocates only the returned slice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementArchiveBenchmark {
+
+    private static final int PERFORMANCES_PER_INVOICE = 5;
+    // a prime, so that consecutive lookups jump around the index
+    private static final int STRIDE = 7919;
+
+    @Param({"100000"})
+    private int customers;
+
+    private Path directory;
+    private StatementArchive archive;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("archive-benchmark");
+        final PlayCatalog catalog = new PlayCatalog(InvoiceData.plays());
+        final Invoice invoice = InvoiceData.invoice(PERFORMANCES_PER_INVOICE, "mixed");
+        final String statement = new StatementPrinter(invoice, catalog).statement();
+        names = new String[customers];
+        try (StatementArchiveWriter writer = new StatementArchiveWriter(directory)) {
+            for (int i = 0; i < customers; i++) {
+                names[i] = "Customer " + i;
+                writer.add(names[i], statement);
+            }
+        }
+        archive = StatementArchive.open(directory);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer lookup() {
+        next = (next + STRIDE) % customers;
+        return archive.get(names[next]);
+    }
+}
@@ -0,0 +1,63 @@
+package theater.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import theater.HTMLStatementPrinter;
+import theater.Invoice;
+import theater.Play;
+import theater.StatementData;
+import theater.StatementPrinter;
+
+/**
+ * Compares pricing an invoice once and rendering the result as text and HTML
+ * against letting each printer price the invoice itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementDataBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private StatementPrinter textPrinter;
+    private StatementPrinter htmlPrinter;
+
+    @Setup
+    public void setUp() {
+        final Map<String, Play> plays = InvoiceData.plays();
+        final Invoice invoice = InvoiceData.invoice(size, "mixed");
+        textPrinter = new StatementPrinter(invoice, plays);
+        htmlPrinter = new HTMLStatementPrinter(invoice, plays);
+    }
+
+    @Benchmark
+    public void separatePrinters(Blackhole blackhole) {
+        blackhole.consume(textPrinter.statement());
+        blackhole.consume(htmlPrinter.statement());
+    }
+
+    @Benchmark
+    public void sharedStatementData(Blackhole blackhole) {
+        final StatementData data = textPrinter.createStatementData();
+        blackhole.consume(textPrinter.render(data));
+        blackhole.consume(htmlPrinter.render(data));
+    }
+}
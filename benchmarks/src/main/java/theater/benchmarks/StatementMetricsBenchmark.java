@@ -0,0 +1,56 @@
+package theater.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import theater.RecordingStatementMetrics;
+import theater.RenderMode;
+import theater.StatementMetrics;
+import theater.StatementPrinter;
+
+/**
+ * Measures the cost of statement instrumentation: with the no-op listener installed the
+ * statement must cost the same as before instrumentation existed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementMetricsBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Param({"noop", "recording"})
+    private String metrics;
+
+    private StatementPrinter printer;
+
+    @Setup
+    public void setUp() {
+        StatementMetrics listener = StatementMetrics.NOOP;
+        if ("recording".equals(metrics)) {
+            listener = new RecordingStatementMetrics();
+        }
+        printer = new StatementPrinter(InvoiceData.invoice(size, "mixed"), InvoiceData.plays(), RenderMode.DIRECT,
+                listener);
+    }
+
+    @Benchmark
+    public String statement() {
+        return printer.statement();
+    }
+}
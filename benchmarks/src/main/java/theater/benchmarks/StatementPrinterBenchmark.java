@@ -0,0 +1,157 @@
+package theater.benchmarks;
+
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import theater.Constants;
+import theater.Invoice;
+import theater.Performance;
+import theater.Play;
+import theater.StatementPrinter;
+
+/**
+ * Benchmarks for statement generation and the amount/credit calculations of {@link StatementPrinter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementPrinterBenchmark {
+
+    @Param({"1", "10", "1000", "100000"})
+    private int size;
+
+    @Param({"tragedy", "comedy", "history", "pastoral", "mixed"})
+    private String mix;
+
+    private Invoice invoice;
+    private StatementPrinter printer;
+    private Performance[] performances;
+    private Play[] plays;
+    private int[] amounts;
+
+    @Setup
+    public void setUp() {
+        final Map<String, Play> catalog = InvoiceData.plays();
+        invoice = InvoiceData.invoice(size, mix);
+        printer = new StatementPrinter(invoice, catalog);
+
+        final List<Performance> list = invoice.getPerformances();
+        performances = list.toArray(new Performance[0]);
+        plays = new Play[performances.length];
+        amounts = new int[performances.length];
+        for (int i = 0; i < performances.length; i++) {
+            plays[i] = printer.getPlay(performances[i]);
+            amounts[i] = printer.getAmount(performances[i], plays[i]);
+        }
+    }
+
+    @Benchmark
+    public String statement() {
+        return printer.statement();
+    }
+
+    /**
+     * The statement exactly as the original printer wrote it, with int totals, {@code String.format} and a
+     * {@link NumberFormat} per statement, as the baseline for {@link #statement()}. The FORMAT render mode
+     * no longer measures this, because it formats amounts with the shared CurrencyFormatter. Int totals
+     * wrap at the largest sizes, as they did.
+     */
+    @Benchmark
+    public String numberFormatBaseline() {
+        int totalAmount = 0;
+        int volumeCredits = 0;
+
+        final StringBuilder result =
+                new StringBuilder("Statement for " + invoice.getCustomer() + System.lineSeparator());
+
+        final NumberFormat frmt = NumberFormat.getCurrencyInstance(Locale.US);
+
+        for (Performance performance : invoice.getPerformances()) {
+            final Play play = printer.getPlay(performance);
+
+            final int thisAmount = printer.getAmount(performance, play);
+            final int thisPerformanceCredits = printer.getVolumeCredits(performance, play);
+
+            totalAmount += thisAmount;
+            volumeCredits += thisPerformanceCredits;
+
+            result.append(String.format(
+                    "  %s: %s (%s seats)%n",
+                    play.getName(),
+                    frmt.format(thisAmount / Constants.PERCENT_FACTOR),
+                    performance.getAudience()
+            ));
+        }
+
+        result.append(String.format(
+                "Amount owed is %s%n",
+                frmt.format(totalAmount / Constants.PERCENT_FACTOR)
+        ));
+        result.append(String.format(
+                "You earned %s credits%n",
+                volumeCredits
+        ));
+
+        return result.toString();
+    }
+
+    @Benchmark
+    public int getAmount() {
+        int total = 0;
+        for (int i = 0; i < performances.length; i++) {
+            total += printer.getAmount(performances[i], plays[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int getVolumeCredits() {
+        int total = 0;
+        for (int i = 0; i < performances.length; i++) {
+            total += printer.getVolumeCredits(performances[i], plays[i]);
+        }
+        return total;
+    }
+
+    /**
+     * The total amount in cents. Only the exact variant is measured, since the int one of
+     * {@link StatementPrinter#getTotalAmount()} overflows for the largest invoices.
+     *
+     * @return the total amount
+     */
+    @Benchmark
+    public long getTotalAmountExact() {
+        return printer.getTotalAmountExact();
+    }
+
+    @Benchmark
+    public int getTotalVolumeCredits() {
+        return printer.getTotalVolumeCredits();
+    }
+
+    @Benchmark
+    public void usd(Blackhole blackhole) {
+        for (int amount : amounts) {
+            blackhole.consume(printer.usd(amount));
+        }
+    }
+}
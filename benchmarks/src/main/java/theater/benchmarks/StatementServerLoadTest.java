@@ -0,0 +1,132 @@
+package theater.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import theater.Invoice;
+import theater.LatencyHistogram;
+import theater.Performance;
+import theater.PlayCatalog;
+import theater.StatementServer;
+
+/**
+ * Load test for {@link StatementServer}: a number of clients post invoices over kept-alive connections
+ * for a fixed time, and throughput, errors and latency percentiles are printed at the end.
+ * Starts its own server unless a URL is given.
+ *
+ * <pre>
+ * java -cp benchmarks.jar theater.benchmarks.StatementServerLoadTest [clients] [seconds] [performances] [url]
+ * </pre>
+ */
+public final class StatementServerLoadTest {
+
+    private static final int DEFAULT_CLIENTS = 64;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int DEFAULT_PERFORMANCES = 5;
+    private static final int OK = 200;
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private StatementServerLoadTest() {
+        // utility class
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args the number of clients, the duration in seconds, the performances per invoice
+     *             and optionally the statement URL of a running server
+     * @throws Exception if the server cannot be started or a client fails unexpectedly
+     */
+    public static void main(String[] args) throws Exception {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        final int performances = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PERFORMANCES;
+        StatementServer server = null;
+        final URI uri;
+        if (args.length > 3) {
+            uri = URI.create(args[3]);
+        }
+        else {
+            // opt in to TCP_NODELAY like StatementServer.main, before the server is created
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            server = new StatementServer(new PlayCatalog(InvoiceData.plays()), 0);
+            server.start();
+            uri = URI.create("http://localhost:" + server.getPort() + "/statement");
+        }
+
+        final String body = json(InvoiceData.invoice(performances, "mixed"));
+        final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(clients))
+                .build();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final ExecutorService workers = Executors.newFixedThreadPool(clients);
+        final List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            running.add(workers.submit(() -> {
+                final HttpRequest request = HttpRequest.newBuilder(uri)
+                        .timeout(Duration.ofSeconds(seconds))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                while (System.nanoTime() < deadline) {
+                    final long start = System.nanoTime();
+                    final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    latency.record(System.nanoTime() - start);
+                    if (response.statusCode() != OK) {
+                        errors.increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        workers.shutdown();
+        if (server != null) {
+            server.stop();
+        }
+        report(clients, seconds, latency, errors.sum());
+        System.exit(0);
+    }
+
+    private static void report(int clients, int seconds, LatencyHistogram latency, long errors) {
+        System.out.printf("%d clients, %d s: %d requests, %.0f requests/s, %d errors%n",
+                clients, seconds, latency.getCount(), (double) latency.getCount() / seconds, errors);
+        for (double percentile : PERCENTILES) {
+            System.out.printf("  p%-5s %10.1f us%n", percentile,
+                    latency.getValueAtPercentile(percentile) / NANOS_PER_MICRO);
+        }
+        System.out.printf("  max    %10.1f us%n", latency.getMax() / NANOS_PER_MICRO);
+    }
+
+    private static String json(Invoice invoice) throws IOException {
+        final StringBuilder result = new StringBuilder("{\"customer\":\"").append(invoice.getCustomer())
+                .append("\",\"performances\":[");
+        for (int i = 0; i < invoice.getPerformances().size(); i++) {
+            final Performance performance = invoice.getPerformances().get(i);
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"playID\":\"").append(performance.getPlayID())
+                    .append("\",\"audience\":").append(performance.getAudience()).append('}');
+        }
+        return result.append("]}").toString();
+    }
+}
@@ -0,0 +1,72 @@
+package theater;
+
+/**
+ * Calculates the amount and volume credits for performances of one play type.
+ * Each play resolves its calculator once, when it is created, so pricing a performance
+ * is a virtual call rather than a switch on the play type.
+ */
+public abstract class AbstractPerformanceCalculator {
+
+    /**
+     * Calculates the charge amount for a performance.
+     *
+     * @param audience the audience size of the performance
+     * @return the amount in cents for this performance
+     * @throws ArithmeticException if the amount does not fit in an int
+     */
+    public abstract int amountFor(int audience);
+
+    /**
+     * Calculates volume credits earned for a performance.
+     * Unless a play type says otherwise, audience members above the base threshold earn one credit each.
+     *
+     * @param audience the audience size of the performance
+     * @return the volume credits for this performance
+     * @throws ArithmeticException if the credits do not fit in an int
+     */
+    public int volumeCredits(int audience) {
+        return Math.max(audience - Constants.BASE_VOLUME_CREDIT_THRESHOLD, 0);
+    }
+
+    /**
+     * Returns the parameters of this calculator's rules, so that many performances can be priced at once.
+     * {@link #amountFor(int)} and {@link #volumeCredits(int)} must give exactly what the rule gives.
+     *
+     * @return the rule, or null if the rules of this calculator do not have the shape of a {@link PricingRule}
+     */
+    PricingRule rule() {
+        return null;
+    }
+
+    /**
+     * Returns the calculator for the given play type.
+     *
+     * @param type the play type
+     * @return the calculator for that type
+     * @throws RuntimeException if the play type is not supported
+     */
+    public static AbstractPerformanceCalculator createPerformanceCalculator(String type) {
+        final AbstractPerformanceCalculator result;
+        switch (type) {
+            case "tragedy":
+                result = TragedyCalculator.INSTANCE;
+                break;
+            case "comedy":
+                result = ComedyCalculator.INSTANCE;
+                break;
+            case "history":
+                result = HistoryCalculator.INSTANCE;
+                break;
+            case "pastoral":
+                result = PastoralCalculator.INSTANCE;
+                break;
+            default:
+                final UnknownPlayTypeEvent event = new UnknownPlayTypeEvent();
+                event.type = type;
+                event.commit();
+                // Keep original behavior for truly unknown types
+                throw new RuntimeException(String.format("unknown type: %s", type));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,236 @@
+package theater;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders statements without blocking the caller. Every invoice is priced and formatted on the
+ * given executor against one shared play catalog and currency formatter, and each worker thread
+ * reuses its own staging buffer, so nothing but the printer itself is allocated per invoice.
+ *
+ * <p>At most a fixed number of statements are handed to the executor at a time; the rest wait in
+ * a queue without occupying a worker. Cancelling a future, or letting it time out, before its
+ * statement was started drops the invoice from the queue.</p>
+ */
+public final class AsyncStatementPrinter {
+
+    private final PlayCatalog catalog;
+    private final CurrencyFormatter currencyFormatter;
+    private final Executor executor;
+    private final int maxConcurrency;
+    // null when statements never time out
+    private final Duration timeout;
+
+    private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * Creates a printer rendering on the common fork/join pool, using every worker of it, without a timeout.
+     *
+     * @param catalog the play catalog shared by all invoices
+     */
+    public AsyncStatementPrinter(PlayCatalog catalog) {
+        this(catalog, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), null);
+    }
+
+    /**
+     * Creates a printer rendering on the given executor.
+     *
+     * @param catalog        the play catalog shared by all invoices
+     * @param executor       the executor to render on
+     * @param maxConcurrency the most statements handed to the executor at a time
+     * @param timeout        how long a statement, or a bulk request, may take from submission, or null for no limit
+     */
+    public AsyncStatementPrinter(PlayCatalog catalog, Executor executor, int maxConcurrency, Duration timeout) {
+        this(catalog, executor, maxConcurrency, timeout, CurrencyFormatter.USD);
+    }
+
+    /**
+     * Creates a printer rendering on the given executor and formatting amounts with the given formatter.
+     *
+     * @param catalog           the play catalog shared by all invoices
+     * @param executor          the executor to render on
+     * @param maxConcurrency    the most statements handed to the executor at a time
+     * @param timeout           how long a statement, or a bulk request, may take from submission,
+     *                          or null for no limit
+     * @param currencyFormatter the formatter for every amount
+     */
+    public AsyncStatementPrinter(PlayCatalog catalog, Executor executor, int maxConcurrency, Duration timeout,
+                                 CurrencyFormatter currencyFormatter) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maximum concurrency must be positive");
+        }
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.catalog = catalog;
+        this.currencyFormatter = currencyFormatter;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Renders the statement of the given invoice. The future fails with the exception that prevented
+     * the statement, e.g. for an unknown play, or with a {@link java.util.concurrent.TimeoutException}
+     * when the timeout elapses first.
+     *
+     * @param invoice the invoice
+     * @return the future statement
+     */
+    public CompletableFuture<String> statementAsync(Invoice invoice) {
+        return withTimeout(enqueue(invoice));
+    }
+
+    /**
+     * Renders the statements of all given invoices. The timeout applies to the whole list, so invoices
+     * waiting behind others do not time out on their own. The future fails as soon as any statement
+     * fails; cancelling it, or a failure or timeout, cancels every statement not yet rendered.
+     *
+     * @param invoices the invoices
+     * @return the future statements, in input order
+     */
+    public CompletableFuture<List<String>> statementsAsync(List<Invoice> invoices) {
+        final List<CompletableFuture<String>> parts = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            parts.add(enqueue(invoice));
+        }
+        final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        final String[] statements = new String[parts.size()];
+        final AtomicInteger remaining = new AtomicInteger(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            final int index = i;
+            parts.get(i).whenComplete((statement, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                }
+                else {
+                    statements[index] = statement;
+                    if (remaining.decrementAndGet() == 0) {
+                        result.complete(Arrays.asList(statements));
+                    }
+                }
+            });
+        }
+        if (parts.isEmpty()) {
+            result.complete(List.of());
+        }
+        result.whenComplete((statementList, failure) -> {
+            if (failure != null) {
+                parts.forEach(part -> part.cancel(false));
+            }
+        });
+        return withTimeout(result);
+    }
+
+    /**
+     * Get the number of statements waiting for a free slot, including ones cancelled while waiting.
+     *
+     * @return the queue length
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Get the number of statements currently handed to the executor.
+     *
+     * @return the number of statements in flight
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future) {
+        if (timeout != null) {
+            future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    private CompletableFuture<String> enqueue(Invoice invoice) {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        queue.add(new Task(invoice, future));
+        dispatch();
+        return future;
+    }
+
+    /**
+     * Hands queued statements to the executor while slots are free. A slot is claimed before a task
+     * is taken, so a task queued while every slot was taken is picked up by whoever frees the next one.
+     */
+    private void dispatch() {
+        while (!queue.isEmpty() && tryAcquire()) {
+            final Task task = queue.poll();
+            if (task == null) {
+                running.decrementAndGet();
+            }
+            else if (task.future.isDone()) {
+                // cancelled or timed out while waiting
+                running.decrementAndGet();
+            }
+            else {
+                submit(task);
+            }
+        }
+    }
+
+    private boolean tryAcquire() {
+        boolean acquired = false;
+        int current = running.get();
+        while (!acquired && current < maxConcurrency) {
+            acquired = running.compareAndSet(current, current + 1);
+            current = running.get();
+        }
+        return acquired;
+    }
+
+    private void submit(Task task) {
+        try {
+            executor.execute(() -> run(task));
+        }
+        catch (RejectedExecutionException exception) {
+            task.future.completeExceptionally(exception);
+            running.decrementAndGet();
+        }
+    }
+
+    private void run(Task task) {
+        try {
+            if (!task.future.isDone()) {
+                task.future.complete(
+                        new StatementPrinter(task.invoice, catalog, RenderMode.DIRECT, currencyFormatter).statement());
+            }
+        }
+        catch (RuntimeException exception) {
+            task.future.completeExceptionally(exception);
+        }
+        finally {
+            running.decrementAndGet();
+            dispatch();
+        }
+    }
+
+    /**
+     * An invoice waiting for its statement.
+     */
+    private static final class Task {
+        private final Invoice invoice;
+        private final CompletableFuture<String> future;
+
+        Task(Invoice invoice, CompletableFuture<String> future) {
+            this.invoice = invoice;
+            this.future = future;
+        }
+    }
+}
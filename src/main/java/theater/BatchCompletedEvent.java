@@ -0,0 +1,32 @@
+package theater;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a run of {@link BatchStatementGenerator}. Every completed batch is recorded;
+ * the statements within it are recorded as {@link StatementRenderedEvent}s when they are slow.
+ */
+@Name("theater.BatchCompleted")
+@Label("Batch Completed")
+@Category({"Theater", "Billing"})
+@Description("A batch of statements was generated")
+@Threshold("0 ms")
+@StackTrace(false)
+final class BatchCompletedEvent extends Event {
+
+    @Label("Invoices")
+    int invoices;
+
+    @Label("Failures")
+    @Description("Invoices whose statement could not be generated")
+    int failures;
+
+    @Label("Performances")
+    long performances;
+}
@@ -0,0 +1,192 @@
+package theater;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Renders the statements of many invoices in parallel against one shared play catalog.
+ * Invoices are handed to the executor in chunks, results are delivered in input order,
+ * and a failing invoice is reported in its result without aborting the rest of the batch.
+ * Play types are checked when the catalog's plays are created, so an invoice fails because it refers to
+ * a play id the catalog does not have, or because its totals overflow.
+ */
+public class BatchStatementGenerator {
+
+    private static final int DEFAULT_CHUNK_SIZE = 64;
+    // chunks in flight per worker: enough to keep every worker busy while results are drained in order
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final PlayCatalog catalog;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    /**
+     * Creates a generator running on the common fork/join pool.
+     *
+     * @param plays the play catalog shared by all invoices
+     */
+    public BatchStatementGenerator(Map<String, Play> plays) {
+        this(new PlayCatalog(plays));
+    }
+
+    /**
+     * Creates a generator running on the common fork/join pool.
+     *
+     * @param catalog the play catalog shared by all invoices
+     */
+    public BatchStatementGenerator(PlayCatalog catalog) {
+        this(catalog, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a generator running on the given executor.
+     *
+     * @param plays       the play catalog shared by all invoices
+     * @param executor    the executor to render on, e.g. a {@link ForkJoinPool}
+     * @param parallelism the number of workers of the executor
+     * @param chunkSize   the number of invoices rendered per task
+     */
+    public BatchStatementGenerator(Map<String, Play> plays, ExecutorService executor,
+                                   int parallelism, int chunkSize) {
+        this(new PlayCatalog(plays), executor, parallelism, chunkSize);
+    }
+
+    /**
+     * Creates a generator running on the given executor. Invoices whose performances were created
+     * through the catalog, e.g. by an {@link InvoiceReader} given the same catalog, look their plays up by ordinal.
+     *
+     * @param catalog     the play catalog shared by all invoices
+     * @param executor    the executor to render on, e.g. a {@link ForkJoinPool}
+     * @param parallelism the number of workers of the executor
+     * @param chunkSize   the number of invoices rendered per task
+     */
+    public BatchStatementGenerator(PlayCatalog catalog, ExecutorService executor,
+                                   int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("parallelism and chunk size must be positive");
+        }
+        this.catalog = catalog;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = parallelism * CHUNKS_PER_WORKER;
+    }
+
+    /**
+     * Renders the statements of all given invoices.
+     *
+     * @param invoices the invoices to render
+     * @return one result per invoice, in input order
+     * @throws InterruptedException if interrupted while waiting for results
+     */
+    public List<StatementResult> generate(Iterable<Invoice> invoices) throws InterruptedException {
+        final List<StatementResult> results = new ArrayList<>();
+        generate(invoices, results::add);
+        return results;
+    }
+
+    /**
+     * Renders the statements of all given invoices, passing each result to the given sink in
+     * input order as soon as it and all earlier results are ready. Only a bounded number of
+     * invoices is held in memory at a time, so the input may be arbitrarily long.
+     *
+     * @param invoices the invoices to render
+     * @param sink     receives one result per invoice, on the calling thread
+     * @throws InterruptedException if interrupted while waiting for results
+     */
+    public void generate(Iterable<Invoice> invoices, Consumer<StatementResult> sink) throws InterruptedException {
+        final BatchCompletedEvent event = new BatchCompletedEvent();
+        event.begin();
+        final Consumer<StatementResult> counted = result -> {
+            event.invoices++;
+            // a malformed invoice is reported as a failure, not counted
+            if (result.getInvoice() != null && result.getInvoice().getPerformances() != null) {
+                event.performances += result.getInvoice().getPerformances().size();
+            }
+            if (!result.isSuccess()) {
+                event.failures++;
+            }
+            sink.accept(result);
+        };
+        generateChunks(invoices, counted);
+        event.commit();
+    }
+
+    private void generateChunks(Iterable<Invoice> invoices, Consumer<StatementResult> sink)
+            throws InterruptedException {
+        final ArrayDeque<Future<List<StatementResult>>> inFlight = new ArrayDeque<>();
+        try {
+            List<Invoice> chunk = new ArrayList<>(chunkSize);
+            for (Invoice invoice : invoices) {
+                chunk.add(invoice);
+                if (chunk.size() == chunkSize) {
+                    if (inFlight.size() == maxChunksInFlight) {
+                        deliver(inFlight.poll(), sink);
+                    }
+                    inFlight.add(submit(chunk));
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(submit(chunk));
+            }
+            while (!inFlight.isEmpty()) {
+                deliver(inFlight.poll(), sink);
+            }
+        }
+        finally {
+            for (Future<List<StatementResult>> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Future<List<StatementResult>> submit(List<Invoice> chunk) {
+        return executor.submit(() -> render(chunk));
+    }
+
+    private List<StatementResult> render(List<Invoice> chunk) {
+        final List<StatementResult> results = new ArrayList<>(chunk.size());
+        for (Invoice invoice : chunk) {
+            results.add(render(invoice));
+        }
+        return results;
+    }
+
+    /**
+     * Renders the statement of one invoice, capturing any failure in the result.
+     *
+     * @param invoice the invoice
+     * @return the result for the invoice
+     */
+    StatementResult render(Invoice invoice) {
+        StatementResult result;
+        try {
+            result = StatementResult.success(invoice, new StatementPrinter(invoice, catalog).statement());
+        }
+        catch (RuntimeException exception) {
+            result = StatementResult.failure(invoice, exception);
+        }
+        return result;
+    }
+
+    private static void deliver(Future<List<StatementResult>> future, Consumer<StatementResult> sink)
+            throws InterruptedException {
+        final List<StatementResult> results;
+        try {
+            results = future.get();
+        }
+        catch (ExecutionException exception) {
+            // per-invoice exceptions are captured in the results, so this is an Error from a worker
+            throw new IllegalStateException("statement rendering failed", exception.getCause());
+        }
+        results.forEach(sink);
+    }
+}
@@ -0,0 +1,40 @@
+package theater;
+
+/**
+ * Performance calculator for comedies.
+ */
+public final class ComedyCalculator extends AbstractPerformanceCalculator {
+
+    static final ComedyCalculator INSTANCE = new ComedyCalculator();
+    private static final PricingRule RULE = new PricingRule(Constants.COMEDY_BASE_AMOUNT,
+            Constants.COMEDY_AMOUNT_PER_AUDIENCE, Constants.COMEDY_AUDIENCE_THRESHOLD,
+            Constants.COMEDY_OVER_BASE_CAPACITY_PER_PERSON, Constants.COMEDY_OVER_BASE_CAPACITY_AMOUNT,
+            Constants.BASE_VOLUME_CREDIT_THRESHOLD, Constants.COMEDY_EXTRA_VOLUME_FACTOR);
+
+    private ComedyCalculator() {
+        // shared instance only
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        int result = Constants.COMEDY_BASE_AMOUNT;
+        if (audience > Constants.COMEDY_AUDIENCE_THRESHOLD) {
+            result = Math.addExact(result, Math.addExact(Constants.COMEDY_OVER_BASE_CAPACITY_AMOUNT,
+                    Math.multiplyExact(Constants.COMEDY_OVER_BASE_CAPACITY_PER_PERSON,
+                            audience - Constants.COMEDY_AUDIENCE_THRESHOLD)));
+        }
+        result = Math.addExact(result, Math.multiplyExact(Constants.COMEDY_AMOUNT_PER_AUDIENCE, audience));
+        return result;
+    }
+
+    @Override
+    public int volumeCredits(int audience) {
+        // add extra credit for every five comedy attendees (original rule)
+        return Math.addExact(super.volumeCredits(audience), audience / Constants.COMEDY_EXTRA_VOLUME_FACTOR);
+    }
+
+    @Override
+    PricingRule rule() {
+        return RULE;
+    }
+}
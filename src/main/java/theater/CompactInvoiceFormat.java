@@ -0,0 +1,108 @@
+package theater;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the compact binary invoice format written by {@link CompactInvoiceWriter}.
+ *
+ * <pre>
+ * file        = magic version playCount playID* invoice*
+ * playID      = varint(length) UTF-8 bytes
+ * invoice     = string(customer) varint(performanceCount) performance*
+ * performance = varint(play) [string(playID) if play is 0] zigzag(audience)
+ * string      = varint(0) for null | varint(length + 1) UTF-8 bytes
+ * </pre>
+ *
+ * <p>Play {@code n > 0} is the {@code n}-th id of the play table in the header; play 0 is followed by
+ * the play id itself, for performances of plays the table does not contain. Varints are unsigned
+ * LEB128 and audiences are zigzag encoded so that negative values stay short.
+ */
+final class CompactInvoiceFormat {
+
+    static final int MAGIC = 0x54484956;
+    static final int VERSION = 1;
+    static final int INLINE_PLAY = 0;
+
+    private static final int PAYLOAD_BITS = 7;
+    private static final int PAYLOAD_MASK = 0x7f;
+    private static final int CONTINUATION = 0x80;
+    private static final int MAX_SHIFT = 28;
+
+    private CompactInvoiceFormat() {
+        // utility class
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param out    the destination
+     * @param offset where to write
+     * @param value  the value, treated as unsigned
+     * @return the offset after the varint
+     */
+    static int putVarint(byte[] out, int offset, int value) {
+        int position = offset;
+        int rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            out[position++] = (byte) (rest & PAYLOAD_MASK | CONTINUATION);
+            rest >>>= PAYLOAD_BITS;
+        }
+        out[position++] = (byte) rest;
+        return position;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param in the source, positioned at the varint
+     * @return the value
+     * @throws IOException                          if the varint is longer than an int
+     * @throws java.nio.BufferUnderflowException if the source ends inside the varint
+     */
+    static int getVarint(ByteBuffer in) throws IOException {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > MAX_SHIFT) {
+                throw malformed(in.position(), "varint is too long");
+            }
+            b = in.get();
+            result |= (b & PAYLOAD_MASK) << shift;
+            shift += PAYLOAD_BITS;
+        } while ((b & CONTINUATION) != 0);
+        return result;
+    }
+
+    /**
+     * Creates the exception for malformed input.
+     *
+     * @param position the byte offset of the problem
+     * @param message  what is wrong
+     * @return the exception
+     */
+    static IOException malformed(int position, String message) {
+        return new IOException(String.format("malformed compact invoice at byte %d: %s", position, message));
+    }
+
+    /**
+     * Zigzag-encodes a signed int.
+     *
+     * @param value the value
+     * @return the encoding, small for values close to zero
+     */
+    static int zigzag(int value) {
+        return value << 1 ^ value >> (Integer.SIZE - 1);
+    }
+
+    /**
+     * Decodes a zigzag-encoded int.
+     *
+     * @param value the encoding
+     * @return the value
+     */
+    static int unzigzag(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,238 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads invoices written by {@link CompactInvoiceWriter} straight out of a byte buffer, usually a
+ * memory-mapped file. Nothing is copied except the customer names; performances of plays in the
+ * catalog share the catalog's play id strings and carry its ordinals, so no play id is decoded.
+ *
+ * <p>A byte buffer holds at most {@link Integer#MAX_VALUE} bytes, so {@link #open} only reads files up to
+ * 2 GB; larger archives have to be split into several files.</p>
+ */
+public class CompactInvoiceReader implements Iterator<Invoice>, Iterable<Invoice> {
+
+    private static final int BYTE_BITS = 8;
+    private static final int BYTE_MASK = 0xff;
+    private static final int INITIAL_SCRATCH_SIZE = 64;
+
+    private final ByteBuffer buffer;
+    private final PlayCatalog catalog;
+    // the play id and catalog ordinal of every play in the file's play table, by file ordinal
+    private final String[] playIDs;
+    private final int[] ordinals;
+    private byte[] scratch = new byte[INITIAL_SCRATCH_SIZE];
+
+    /**
+     * Creates a reader over the compact invoices from the position to the limit of the given buffer.
+     *
+     * @param buffer  the compact invoices; the reader takes over its position
+     * @param catalog the play catalog to resolve plays against, or null for plain performances
+     * @throws IOException if the header is malformed
+     */
+    public CompactInvoiceReader(ByteBuffer buffer, PlayCatalog catalog) throws IOException {
+        this(buffer, catalog, readPlayTable(buffer));
+    }
+
+    private CompactInvoiceReader(ByteBuffer buffer, PlayCatalog catalog, String[] playTable) {
+        this.buffer = buffer;
+        this.catalog = catalog;
+        this.playIDs = new String[playTable.length];
+        this.ordinals = new int[playTable.length];
+        for (int i = 0; i < playTable.length; i++) {
+            final int ordinal;
+            if (catalog == null) {
+                ordinal = PlayCatalog.UNKNOWN;
+            }
+            else {
+                ordinal = catalog.ordinalOf(playTable[i]);
+            }
+            // the catalog's copy of the id, so that its ordinal lookup trusts these performances
+            if (ordinal == PlayCatalog.UNKNOWN) {
+                playIDs[i] = playTable[i];
+            }
+            else {
+                playIDs[i] = catalog.idOf(ordinal);
+            }
+            ordinals[i] = ordinal;
+        }
+    }
+
+    /**
+     * Creates a reader over invoices without a header, as encoded by {@link CompactInvoiceWriter#encoder},
+     * whose performances refer to the plays of the given catalog by ordinal, plus one.
+     *
+     * @param buffer  the compact invoices; the reader takes over its position
+     * @param catalog the play catalog the invoices were encoded against
+     * @return the reader
+     */
+    static CompactInvoiceReader withoutHeader(ByteBuffer buffer, PlayCatalog catalog) {
+        final String[] playTable = new String[catalog.size()];
+        for (int ordinal = 0; ordinal < playTable.length; ordinal++) {
+            playTable[ordinal] = catalog.idOf(ordinal);
+        }
+        return new CompactInvoiceReader(buffer, catalog, playTable);
+    }
+
+    private static String[] readPlayTable(ByteBuffer buffer) throws IOException {
+        try {
+            int magic = 0;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                magic = magic << BYTE_BITS | buffer.get() & BYTE_MASK;
+            }
+            if (magic != CompactInvoiceFormat.MAGIC) {
+                throw CompactInvoiceFormat.malformed(0, "not a compact invoice file");
+            }
+            final int version = CompactInvoiceFormat.getVarint(buffer);
+            if (version != CompactInvoiceFormat.VERSION) {
+                throw CompactInvoiceFormat.malformed(Integer.BYTES,
+                        String.format("unsupported version %d", version));
+            }
+            final String[] result = new String[count(buffer)];
+            for (int i = 0; i < result.length; i++) {
+                final byte[] playID = new byte[count(buffer)];
+                buffer.get(playID);
+                result[i] = new String(playID, StandardCharsets.UTF_8);
+            }
+            return result;
+        }
+        catch (BufferUnderflowException exception) {
+            throw CompactInvoiceFormat.malformed(buffer.position(), "unexpected end of input");
+        }
+    }
+
+    /**
+     * Maps a compact invoice file into memory.
+     *
+     * @param path    the file to read
+     * @param catalog the play catalog to resolve plays against, or null for plain performances
+     * @return a reader over the invoices in the file
+     * @throws IOException if the file cannot be mapped, is larger than 2 GB or its header is malformed
+     */
+    public static CompactInvoiceReader open(Path path, PlayCatalog catalog) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is %d bytes, over the %d bytes one mapping can hold",
+                        path, channel.size(), Integer.MAX_VALUE));
+            }
+            return new CompactInvoiceReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), catalog);
+        }
+    }
+
+    /**
+     * Whether another invoice is available.
+     *
+     * @return true if {@link #next()} will return an invoice
+     */
+    @Override
+    public boolean hasNext() {
+        return buffer.hasRemaining();
+    }
+
+    /**
+     * Reads the next invoice.
+     *
+     * @return the invoice
+     * @throws NoSuchElementException if there are no more invoices
+     * @throws UncheckedIOException   if the invoice is malformed
+     */
+    @Override
+    public Invoice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return readInvoice();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        catch (BufferUnderflowException exception) {
+            throw new UncheckedIOException(
+                    CompactInvoiceFormat.malformed(buffer.position(), "unexpected end of input"));
+        }
+    }
+
+    /**
+     * Returns this reader, so that it can be used in a for-each loop. It can only be iterated once.
+     *
+     * @return this reader
+     */
+    @Override
+    public Iterator<Invoice> iterator() {
+        return this;
+    }
+
+    private Invoice readInvoice() throws IOException {
+        final String customer = readString();
+        final int size = count();
+        final List<Performance> performances = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final int play = CompactInvoiceFormat.getVarint(buffer);
+            final String playID;
+            final int ordinal;
+            if (play == CompactInvoiceFormat.INLINE_PLAY) {
+                playID = readString();
+                ordinal = PlayCatalog.UNKNOWN;
+            }
+            else if (play > 0 && play <= playIDs.length) {
+                playID = playIDs[play - 1];
+                ordinal = ordinals[play - 1];
+            }
+            else {
+                throw CompactInvoiceFormat.malformed(buffer.position(), String.format("unknown play %d", play));
+            }
+            final int audience = CompactInvoiceFormat.unzigzag(CompactInvoiceFormat.getVarint(buffer));
+            performances.add(new Performance(playID, audience, ordinal));
+        }
+        return new Invoice(customer, performances);
+    }
+
+    private String readString() throws IOException {
+        final int length = CompactInvoiceFormat.getVarint(buffer);
+        final String result;
+        if (length == 0) {
+            result = null;
+        }
+        else {
+            result = decode(length - 1);
+        }
+        return result;
+    }
+
+    private int count() throws IOException {
+        return count(buffer);
+    }
+
+    private static int count(ByteBuffer buffer) throws IOException {
+        final int result = CompactInvoiceFormat.getVarint(buffer);
+        // every element takes at least one byte, which also rejects negative counts
+        if (result < 0 || result > buffer.remaining()) {
+            throw CompactInvoiceFormat.malformed(buffer.position(), String.format("bad length %d", result));
+        }
+        return result;
+    }
+
+    private String decode(int length) throws IOException {
+        if (length < 0 || length > buffer.remaining()) {
+            throw CompactInvoiceFormat.malformed(buffer.position(), String.format("bad length %d", length));
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,190 @@
+package theater;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes invoices in the compact binary format described by {@link CompactInvoiceFormat}.
+ * Play ids are written once, in a table in the header, and every performance refers to its play
+ * by ordinal, so an archive can be read back by {@link CompactInvoiceReader} without parsing text.
+ */
+public class CompactInvoiceWriter implements Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_VARINT_SIZE = 5;
+    private static final int BYTE_BITS = 8;
+
+    // null for an encoder, which never writes
+    private final OutputStream out;
+    private final PlayCatalog catalog;
+    // one invoice is encoded here and then written with a single call
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    /**
+     * Creates a writer and writes the header with the play table of the given catalog.
+     *
+     * @param out     the destination
+     * @param catalog the plays that performances refer to by ordinal
+     * @throws IOException if the header cannot be written
+     */
+    public CompactInvoiceWriter(OutputStream out, PlayCatalog catalog) throws IOException {
+        this.out = out;
+        this.catalog = catalog;
+        for (int shift = Integer.SIZE - BYTE_BITS; shift >= 0; shift -= BYTE_BITS) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) (CompactInvoiceFormat.MAGIC >>> shift);
+        }
+        putVarint(CompactInvoiceFormat.VERSION);
+        putVarint(catalog.size());
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            putBytes(catalog.idOf(ordinal).getBytes(StandardCharsets.UTF_8), 0);
+        }
+        flushBuffer();
+    }
+
+    private CompactInvoiceWriter(PlayCatalog catalog) {
+        this.out = null;
+        this.catalog = catalog;
+    }
+
+    /**
+     * Creates a writer that only encodes into its buffer, without a header, for containers that frame
+     * invoices themselves. Performances refer to plays by ordinal in the given catalog, plus one.
+     *
+     * @param catalog the plays that performances refer to by ordinal
+     * @return the encoder
+     */
+    static CompactInvoiceWriter encoder(PlayCatalog catalog) {
+        return new CompactInvoiceWriter(catalog);
+    }
+
+    /**
+     * Converts a JSON invoice file shaped like {@code invoices.json} to the compact format.
+     *
+     * @param json    the UTF-8 JSON file to read
+     * @param compact the file to write
+     * @param catalog the plays that performances refer to by ordinal
+     * @return the number of invoices converted
+     * @throws IOException if a file cannot be read or written, or the JSON is malformed
+     */
+    public static int convert(Path json, Path compact, PlayCatalog catalog) throws IOException {
+        int result = 0;
+        try (InvoiceReader invoices = InvoiceReader.open(json);
+             CompactInvoiceWriter writer = new CompactInvoiceWriter(
+                     new BufferedOutputStream(Files.newOutputStream(compact)), catalog)) {
+            for (Invoice invoice : invoices) {
+                writer.write(invoice);
+                result++;
+            }
+        }
+        catch (UncheckedIOException exception) {
+            // the invoice reader reports malformed JSON unchecked
+            throw exception.getCause();
+        }
+        return result;
+    }
+
+    /**
+     * Writes one invoice.
+     *
+     * @param invoice the invoice
+     * @throws IOException if the invoice cannot be written
+     */
+    public void write(Invoice invoice) throws IOException {
+        put(invoice);
+        flushBuffer();
+    }
+
+    /**
+     * Encodes one invoice into the buffer, after anything already in it.
+     *
+     * @param invoice the invoice
+     */
+    void put(Invoice invoice) {
+        putString(invoice.getCustomer());
+        putVarint(invoice.getPerformances().size());
+        for (Performance performance : invoice.getPerformances()) {
+            final int ordinal = catalog.ordinalOf(performance.getPlayID());
+            if (ordinal == PlayCatalog.UNKNOWN) {
+                putVarint(CompactInvoiceFormat.INLINE_PLAY);
+                putString(performance.getPlayID());
+            }
+            else {
+                putVarint(ordinal + 1);
+            }
+            putVarint(CompactInvoiceFormat.zigzag(performance.getAudience()));
+        }
+    }
+
+    /**
+     * Get the buffer holding what was encoded since the last {@link #reset()}.
+     *
+     * @return the buffer, valid up to {@link #length()}
+     */
+    byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the number of bytes encoded since the last {@link #reset()}.
+     *
+     * @return the encoded length
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Discards everything encoded so far.
+     */
+    void reset() {
+        length = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    void putString(String value) {
+        if (value == null) {
+            putVarint(0);
+        }
+        else {
+            putBytes(value.getBytes(StandardCharsets.UTF_8), 1);
+        }
+    }
+
+    private void putBytes(byte[] bytes, int lengthBias) {
+        putVarint(bytes.length + lengthBias);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    void putVarint(int value) {
+        ensureCapacity(MAX_VARINT_SIZE);
+        length = CompactInvoiceFormat.putVarint(buffer, length, value);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (buffer.length - length < extra) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
@@ -0,0 +1,166 @@
+package theater;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.Locale;
+
+/**
+ * Formats amounts given in minor units (cents for USD) as currency strings.
+ * The locale's currency pattern is looked up once when the formatter is created; formatting itself
+ * works on the long amount directly, never through {@code double}, and keeps no mutable state,
+ * so one formatter can be shared by any number of threads.
+ */
+public final class CurrencyFormatter {
+
+    /**
+     * Formats US dollars the way {@code NumberFormat.getCurrencyInstance(Locale.US)} does.
+     */
+    public static final CurrencyFormatter USD = forLocale(Locale.US, Currency.getInstance(Locale.US));
+
+    private static final int RADIX = 10;
+
+    private final String positivePrefix;
+    private final String positiveSuffix;
+    private final String negativePrefix;
+    private final String negativeSuffix;
+    private final char zeroDigit;
+    private final char groupingSeparator;
+    private final char decimalSeparator;
+    private final boolean groupingUsed;
+    private final int groupingSize;
+    private final long groupingFactor;
+    private final int fractionDigits;
+    private final long minorUnitsPerUnit;
+
+    private CurrencyFormatter(DecimalFormat format, int fractionDigits) {
+        final DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+        this.positivePrefix = format.getPositivePrefix();
+        this.positiveSuffix = format.getPositiveSuffix();
+        this.negativePrefix = format.getNegativePrefix();
+        this.negativeSuffix = format.getNegativeSuffix();
+        this.zeroDigit = symbols.getZeroDigit();
+        this.groupingSeparator = symbols.getGroupingSeparator();
+        this.decimalSeparator = symbols.getMonetaryDecimalSeparator();
+        this.groupingSize = format.getGroupingSize();
+        this.groupingUsed = format.isGroupingUsed() && groupingSize > 0;
+        this.groupingFactor = powerOfTen(groupingSize);
+        this.fractionDigits = fractionDigits;
+        this.minorUnitsPerUnit = powerOfTen(fractionDigits);
+    }
+
+    /**
+     * Creates a formatter for a currency as written in a locale.
+     *
+     * @param locale   the locale deciding symbols, separators and sign placement
+     * @param currency the currency, deciding the symbol and the number of minor units
+     * @return the formatter
+     * @throws IllegalArgumentException if the locale has no decimal currency format
+     *                                  or the currency has no minor units defined
+     */
+    public static CurrencyFormatter forLocale(Locale locale, Currency currency) {
+        final NumberFormat format = NumberFormat.getCurrencyInstance(locale);
+        if (!(format instanceof DecimalFormat) || currency.getDefaultFractionDigits() < 0) {
+            throw new IllegalArgumentException(
+                    String.format("no currency format for %s in %s", currency, locale));
+        }
+        format.setCurrency(currency);
+        return new CurrencyFormatter((DecimalFormat) format, currency.getDefaultFractionDigits());
+    }
+
+    /**
+     * Formats an amount.
+     *
+     * @param amount the amount in minor units
+     * @return the formatted amount
+     */
+    public String format(long amount) {
+        final StringBuilder result = new StringBuilder();
+        append(result, amount);
+        return result.toString();
+    }
+
+    /**
+     * Appends a formatted amount to the given buffer without allocating.
+     *
+     * @param out    the buffer to append to
+     * @param amount the amount in minor units
+     */
+    public void append(StringBuilder out, long amount) {
+        final boolean negative = amount < 0;
+        long units = amount / minorUnitsPerUnit;
+        long fraction = amount % minorUnitsPerUnit;
+        if (negative) {
+            units = -units;
+            fraction = -fraction;
+            out.append(negativePrefix);
+        }
+        else {
+            out.append(positivePrefix);
+        }
+        appendGrouped(out, units);
+        if (fractionDigits > 0) {
+            out.append(decimalSeparator);
+            appendDigits(out, fraction, fractionDigits);
+        }
+        if (negative) {
+            out.append(negativeSuffix);
+        }
+        else {
+            out.append(positiveSuffix);
+        }
+    }
+
+    /**
+     * Appends a value with grouping separators. Values are treated as unsigned here and in
+     * {@link #appendDigits}, so that the negated {@code Long.MIN_VALUE} prints as 2^63.
+     */
+    private void appendGrouped(StringBuilder out, long value) {
+        if (!groupingUsed || value >= 0 && value < groupingFactor) {
+            appendDigits(out, value, 1);
+        }
+        else {
+            appendGrouped(out, Long.divideUnsigned(value, groupingFactor));
+            out.append(groupingSeparator);
+            appendDigits(out, Long.remainderUnsigned(value, groupingFactor), groupingSize);
+        }
+    }
+
+    /**
+     * Appends a value with at least the given number of digits, padding with zeros.
+     */
+    private void appendDigits(StringBuilder out, long value, int minDigits) {
+        if (value < 0) {
+            appendDigits(out, Long.divideUnsigned(value, RADIX), minDigits - 1);
+            appendDigits(out, Long.remainderUnsigned(value, RADIX), 1);
+        }
+        else {
+            int digits = 1;
+            long power = 1;
+            while (power <= value / RADIX) {
+                power *= RADIX;
+                digits++;
+            }
+            for (int i = digits; i < minDigits; i++) {
+                out.append(zeroDigit);
+            }
+            if (zeroDigit == '0') {
+                out.append(value);
+            }
+            else {
+                for (; power > 0; power /= RADIX) {
+                    out.append((char) (zeroDigit + value / power % RADIX));
+                }
+            }
+        }
+    }
+
+    private static long powerOfTen(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= RADIX;
+        }
+        return result;
+    }
+}
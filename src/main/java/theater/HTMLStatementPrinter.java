@@ -0,0 +1,123 @@
+package theater;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Generates an HTML statement for a given invoice of performances.
+ */
+public class HTMLStatementPrinter extends StatementPrinter {
+
+    // one renderer per thread, so its buffers are reused across statements
+    private static final ThreadLocal<HTMLStatementRenderer> RENDERERS =
+            ThreadLocal.withInitial(HTMLStatementRenderer::new);
+
+    public HTMLStatementPrinter(Invoice invoice, Map<String, Play> plays) {
+        super(invoice, plays);
+    }
+
+    public HTMLStatementPrinter(Invoice invoice, PlayCatalog catalog) {
+        super(invoice, catalog);
+    }
+
+    public HTMLStatementPrinter(Invoice invoice, PlayCatalog catalog, CurrencyFormatter currencyFormatter) {
+        super(invoice, catalog, RenderMode.DIRECT, currencyFormatter);
+    }
+
+    /**
+     * Creates a printer that reports how long its statements take to the given listener.
+     *
+     * @param invoice the invoice
+     * @param plays   plays keyed by play id
+     * @param metrics the listener, or null for {@link StatementMetrics#NOOP}
+     */
+    public HTMLStatementPrinter(Invoice invoice, Map<String, Play> plays, StatementMetrics metrics) {
+        super(invoice, plays, RenderMode.DIRECT, metrics);
+    }
+
+    /**
+     * Creates a printer that reports how long its statements take to the given listener.
+     *
+     * @param invoice           the invoice
+     * @param catalog           the play catalog
+     * @param currencyFormatter the formatter for amounts
+     * @param metrics           the listener, or null for {@link StatementMetrics#NOOP}
+     */
+    public HTMLStatementPrinter(Invoice invoice, PlayCatalog catalog, CurrencyFormatter currencyFormatter,
+                                StatementMetrics metrics) {
+        super(invoice, catalog, RenderMode.DIRECT, currencyFormatter, metrics);
+    }
+
+    /**
+     * Writes the HTML statement of the invoice associated with this printer to the given
+     * destination, row by row as each performance is priced.
+     *
+     * @param out the destination of the statement
+     * @throws IOException if the destination cannot be written to
+     */
+    @Override
+    public void statement(Appendable out) throws IOException {
+        final StatementRenderedEvent event = new StatementRenderedEvent();
+        event.begin();
+        final long totalAmount = write(RENDERERS.get().begin(getCurrencyFormatter(), out));
+        event.end();
+        commit(event, "html", totalAmount);
+    }
+
+    /**
+     * Writes the HTML statement of the invoice associated with this printer to the given stream.
+     * UTF-8 output is encoded directly from the precompiled template; other charsets go through a writer.
+     * The stream is flushed but not closed.
+     *
+     * @param out     the stream to write to
+     * @param charset the charset to encode the statement with
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void writeStatement(OutputStream out, Charset charset) throws IOException {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            final StatementRenderedEvent event = new StatementRenderedEvent();
+            event.begin();
+            final long totalAmount = write(RENDERERS.get().begin(getCurrencyFormatter(), out));
+            event.end();
+            commit(event, "html", totalAmount);
+        }
+        else {
+            super.writeStatement(out, charset);
+        }
+    }
+
+    /**
+     * Writes the HTML statement for already priced data to the given destination.
+     *
+     * @param data the priced statement, from any printer
+     * @param out  the destination of the statement
+     * @throws IOException if the destination cannot be written to
+     */
+    @Override
+    public void render(StatementData data, Appendable out) throws IOException {
+        measure(data, RENDERERS.get().begin(getCurrencyFormatter(), out));
+    }
+
+    /**
+     * Writes the HTML statement for already priced data to the given stream, encoding UTF-8 directly
+     * from the precompiled template. The stream is flushed but not closed.
+     *
+     * @param data    the priced statement, from any printer
+     * @param out     the stream to write to
+     * @param charset the charset to encode the statement with
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void writeStatement(StatementData data, OutputStream out, Charset charset) throws IOException {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            measure(data, RENDERERS.get().begin(getCurrencyFormatter(), out));
+        }
+        else {
+            super.writeStatement(data, out, charset);
+        }
+    }
+}
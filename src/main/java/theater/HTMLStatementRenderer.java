@@ -0,0 +1,310 @@
+package theater;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renders an HTML statement row by row as it is received, from the invoice as it is priced or from already
+ * priced {@link StatementData}. The static parts of the template are prepared once, as strings and as UTF-8
+ * bytes, and names are escaped through a lookup table, so rows can be streamed straight to an
+ * {@link OutputStream} or {@link Appendable} without {@code String.format}.
+ */
+final class HTMLStatementRenderer implements StatementSink {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int BUFFER_SIZE = 8192;
+    // the longest UTF-8 encoding of one char, or of a surrogate pair, and the longest escape
+    private static final int MAX_ENCODED_CHAR = 6;
+    private static final int ASCII = 128;
+
+    // UTF-8: chars from ASCII up to this take two bytes, the rest three, and surrogate pairs four
+    private static final int TWO_BYTE_LIMIT = 0x800;
+    // the first byte of a sequence of each length, followed by continuation bytes of six bits each
+    private static final int TWO_BYTE_LEAD = 0xC0;
+    private static final int THREE_BYTE_LEAD = 0xE0;
+    private static final int FOUR_BYTE_LEAD = 0xF0;
+    private static final int CONTINUATION = 0x80;
+    private static final int CONTINUATION_BITS = 6;
+    private static final int CONTINUATION_MASK = (1 << CONTINUATION_BITS) - 1;
+    private static final int TWO_CONTINUATION_BITS = 2 * CONTINUATION_BITS;
+    private static final int THREE_CONTINUATION_BITS = 3 * CONTINUATION_BITS;
+
+    // template fragments, in the order they are written
+    private static final int HEADER_START = 0;
+    private static final int CAPTION_START = 1;
+    private static final int CAPTION_END = 2;
+    private static final int ROW_START = 3;
+    private static final int CELL_BREAK = 4;
+    private static final int ROW_END = 5;
+    private static final int AMOUNT_START = 6;
+    private static final int CREDITS_START = 7;
+    private static final int CREDITS_END = 8;
+
+    private static final String[] FRAGMENTS = {
+        "<h1>Statement for ",
+        "</h1>" + LINE_SEPARATOR + "<table>" + LINE_SEPARATOR + " <caption>Statement for ",
+        "</caption>" + LINE_SEPARATOR + " <tr><th>play</th><th>seats</th><th>cost</th></tr>" + LINE_SEPARATOR,
+        " <tr><td>",
+        "</td><td>",
+        "</td></tr>" + LINE_SEPARATOR,
+        "</table>" + LINE_SEPARATOR + "<p>Amount owed is <em>",
+        "</em></p>" + LINE_SEPARATOR + "<p>You earned <em>",
+        "</em> credits</p>" + LINE_SEPARATOR,
+    };
+    private static final byte[][] FRAGMENT_BYTES = new byte[FRAGMENTS.length][];
+    private static final String[] ESCAPES = new String[ASCII];
+    private static final byte[][] ESCAPE_BYTES = new byte[ASCII][];
+
+    static {
+        for (int i = 0; i < FRAGMENTS.length; i++) {
+            FRAGMENT_BYTES[i] = FRAGMENTS[i].getBytes(StandardCharsets.UTF_8);
+        }
+        ESCAPES['&'] = "&amp;";
+        ESCAPES['<'] = "&lt;";
+        ESCAPES['>'] = "&gt;";
+        ESCAPES['"'] = "&quot;";
+        ESCAPES['\''] = "&#39;";
+        for (int i = 0; i < ASCII; i++) {
+            if (ESCAPES[i] != null) {
+                ESCAPE_BYTES[i] = ESCAPES[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private final StringBuilder scratch = new StringBuilder();
+    private final StringBuilder staging = new StringBuilder(BUFFER_SIZE);
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private CurrencyFormatter formatter;
+    private int byteCount;
+    private OutputStream byteOut;
+    // what has been handed over to the destination so far
+    private long written;
+    // the length of the caller's own buffer before the statement, when rendering chars straight into it
+    private int initialLength;
+    // when rendering chars: where they are built, and where they go if that is not the final destination
+    private StringBuilder chars;
+    private Appendable charOut;
+
+    /**
+     * Prepares this renderer to stream one HTML statement as UTF-8 to the given stream, which is flushed
+     * once the totals are written. The renderer is reused, so it is only valid until it is prepared again.
+     *
+     * @param formatter the formatter for amounts
+     * @param out       the stream to write to
+     * @return this renderer, as the sink of the statement
+     */
+    StatementSink begin(CurrencyFormatter formatter, OutputStream out) {
+        this.formatter = formatter;
+        byteOut = out;
+        byteCount = 0;
+        chars = null;
+        charOut = null;
+        written = 0;
+        return this;
+    }
+
+    /**
+     * Prepares this renderer to stream one HTML statement to the given destination.
+     *
+     * @param formatter the formatter for amounts
+     * @param out       the destination of the statement
+     * @return this renderer, as the sink of the statement
+     */
+    StatementSink begin(CurrencyFormatter formatter, Appendable out) {
+        this.formatter = formatter;
+        byteOut = null;
+        written = 0;
+        if (out instanceof StringBuilder) {
+            chars = (StringBuilder) out;
+            charOut = null;
+            initialLength = chars.length();
+        }
+        else {
+            staging.setLength(0);
+            chars = staging;
+            charOut = out;
+        }
+        return this;
+    }
+
+    @Override
+    public void customer(String customer) throws IOException {
+        writeHeader(customer);
+    }
+
+    @Override
+    public void performance(String playName, int audience, int amount, int volumeCredits) throws IOException {
+        writeRow(playName, audience, amount);
+    }
+
+    /**
+     * Writes the totals and hands everything still buffered over to the destination.
+     *
+     * @return the number of characters, or of bytes for a stream, written for the statement
+     */
+    @Override
+    public long totals(long totalAmount, long totalVolumeCredits) throws IOException {
+        writeSummary(totalAmount, totalVolumeCredits);
+        if (byteOut == null) {
+            flushChars();
+            if (charOut == null) {
+                written = chars.length() - initialLength;
+            }
+        }
+        else {
+            flushBytes();
+            byteOut.flush();
+        }
+        byteOut = null;
+        chars = null;
+        charOut = null;
+        return written;
+    }
+
+    private void writeHeader(String customer) throws IOException {
+        writeFragment(HEADER_START);
+        writeEscaped(customer);
+        writeFragment(CAPTION_START);
+        writeEscaped(customer);
+        writeFragment(CAPTION_END);
+    }
+
+    private void writeRow(String playName, int audience, int amount) throws IOException {
+        writeFragment(ROW_START);
+        writeEscaped(playName);
+        writeFragment(CELL_BREAK);
+        writeNumber(audience);
+        writeFragment(CELL_BREAK);
+        writeAmount(amount);
+        writeFragment(ROW_END);
+        if (charOut != null && staging.length() >= BUFFER_SIZE) {
+            flushChars();
+        }
+    }
+
+    private void writeSummary(long totalAmount, long volumeCredits) throws IOException {
+        writeFragment(AMOUNT_START);
+        writeAmount(totalAmount);
+        writeFragment(CREDITS_START);
+        writeNumber(volumeCredits);
+        writeFragment(CREDITS_END);
+    }
+
+    private void writeFragment(int fragment) throws IOException {
+        if (byteOut == null) {
+            chars.append(FRAGMENTS[fragment]);
+        }
+        else {
+            final byte[] encoded = FRAGMENT_BYTES[fragment];
+            if (bytes.length - byteCount < encoded.length) {
+                flushBytes();
+            }
+            System.arraycopy(encoded, 0, bytes, byteCount, encoded.length);
+            byteCount += encoded.length;
+        }
+    }
+
+    private void writeNumber(long value) throws IOException {
+        if (byteOut == null) {
+            chars.append(value);
+        }
+        else {
+            scratch.setLength(0);
+            scratch.append(value);
+            encodeEscaped(scratch);
+        }
+    }
+
+    private void writeAmount(long amount) throws IOException {
+        // the currency symbols come from the locale, so they are escaped like any other text
+        scratch.setLength(0);
+        formatter.append(scratch, amount);
+        writeEscaped(scratch);
+    }
+
+    private void writeEscaped(CharSequence text) throws IOException {
+        if (byteOut == null) {
+            appendEscaped(text);
+        }
+        else {
+            encodeEscaped(text);
+        }
+    }
+
+    private void appendEscaped(CharSequence text) {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < ASCII && ESCAPES[c] != null) {
+                chars.append(text, start, i).append(ESCAPES[c]);
+                start = i + 1;
+            }
+        }
+        chars.append(text, start, text.length());
+    }
+
+    /**
+     * Escapes and encodes text as UTF-8 into the byte buffer.
+     */
+    private void encodeEscaped(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (bytes.length - byteCount < MAX_ENCODED_CHAR) {
+                flushBytes();
+            }
+            final char c = text.charAt(i);
+            if (c < ASCII) {
+                final byte[] escape = ESCAPE_BYTES[c];
+                if (escape == null) {
+                    bytes[byteCount++] = (byte) c;
+                }
+                else {
+                    System.arraycopy(escape, 0, bytes, byteCount, escape.length);
+                    byteCount += escape.length;
+                }
+            }
+            else if (c < TWO_BYTE_LIMIT) {
+                bytes[byteCount++] = (byte) (TWO_BYTE_LEAD | c >> CONTINUATION_BITS);
+                putContinuation(c);
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                bytes[byteCount++] = (byte) (FOUR_BYTE_LEAD | codePoint >> THREE_CONTINUATION_BITS);
+                putContinuation(codePoint >> TWO_CONTINUATION_BITS);
+                putContinuation(codePoint >> CONTINUATION_BITS);
+                putContinuation(codePoint);
+            }
+            else if (Character.isSurrogate(c)) {
+                // unpaired surrogate: write a replacement character, as the UTF-8 encoder does
+                bytes[byteCount++] = (byte) '?';
+            }
+            else {
+                bytes[byteCount++] = (byte) (THREE_BYTE_LEAD | c >> TWO_CONTINUATION_BITS);
+                putContinuation(c >> CONTINUATION_BITS);
+                putContinuation(c);
+            }
+        }
+    }
+
+    /**
+     * Writes a continuation byte carrying the lowest six bits of the given value.
+     */
+    private void putContinuation(int bits) {
+        bytes[byteCount++] = (byte) (CONTINUATION | bits & CONTINUATION_MASK);
+    }
+
+    private void flushChars() throws IOException {
+        if (charOut != null) {
+            written += staging.length();
+            charOut.append(staging);
+            staging.setLength(0);
+        }
+    }
+
+    private void flushBytes() throws IOException {
+        byteOut.write(bytes, 0, byteCount);
+        written += byteCount;
+        byteCount = 0;
+    }
+}
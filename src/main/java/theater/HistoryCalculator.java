@@ -0,0 +1,36 @@
+package theater;
+
+/**
+ * Performance calculator for histories.
+ */
+public final class HistoryCalculator extends AbstractPerformanceCalculator {
+
+    static final HistoryCalculator INSTANCE = new HistoryCalculator();
+    private static final PricingRule RULE = new PricingRule(Constants.HISTORY_BASE_AMOUNT, 0,
+            Constants.HISTORY_AUDIENCE_THRESHOLD, Constants.HISTORY_OVER_BASE_CAPACITY_PER_PERSON, 0,
+            Constants.HISTORY_VOLUME_CREDIT_THRESHOLD, 0);
+
+    private HistoryCalculator() {
+        // shared instance only
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        int result = Constants.HISTORY_BASE_AMOUNT;
+        if (audience > Constants.HISTORY_AUDIENCE_THRESHOLD) {
+            result = Math.addExact(result, Math.multiplyExact(Constants.HISTORY_OVER_BASE_CAPACITY_PER_PERSON,
+                    audience - Constants.HISTORY_AUDIENCE_THRESHOLD));
+        }
+        return result;
+    }
+
+    @Override
+    public int volumeCredits(int audience) {
+        return Math.max(audience - Constants.HISTORY_VOLUME_CREDIT_THRESHOLD, 0);
+    }
+
+    @Override
+    PricingRule rule() {
+        return RULE;
+    }
+}
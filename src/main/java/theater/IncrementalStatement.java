@@ -0,0 +1,226 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A plain-text statement for an invoice that is still open. Performances can be added and removed
+ * at any time; each change prices and renders only the affected line and updates the totals in
+ * constant time, and the summary is rendered again only when it is next needed. The statement is
+ * always identical to what a fresh {@link StatementPrinter} would print for {@link #getInvoice()}.
+ */
+public class IncrementalStatement {
+
+    private final String customer;
+    private final PlayCatalog catalog;
+    private final CurrencyFormatter currencyFormatter;
+    private final String header;
+    // performances in invoice order, as a linked list so that removal does not shift the rest
+    private final Map<Performance, Line> lines = new IdentityHashMap<>();
+    private Line first;
+    private Line last;
+    private long totalAmount;
+    private long totalVolumeCredits;
+    private long characters;
+    // rendered lazily after a change; null while out of date
+    private String summary;
+    private String statement;
+
+    public IncrementalStatement(String customer, PlayCatalog catalog) {
+        this(customer, catalog, CurrencyFormatter.USD);
+    }
+
+    public IncrementalStatement(String customer, PlayCatalog catalog, CurrencyFormatter currencyFormatter) {
+        this.customer = customer;
+        this.catalog = catalog;
+        this.currencyFormatter = currencyFormatter;
+        final StringBuilder result = new StringBuilder();
+        StatementRenderer.appendHeader(result, customer);
+        this.header = result.toString();
+        this.characters = header.length();
+    }
+
+    /**
+     * Adds a performance at the end of the invoice.
+     *
+     * @param performance the performance; the same object can be on the statement only once
+     * @throws IllegalArgumentException if the performance is already on the statement or its play is not known
+     * @throws ArithmeticException      if a total does not fit in a long
+     */
+    public void addPerformance(Performance performance) {
+        if (lines.containsKey(performance)) {
+            throw new IllegalArgumentException("performance is already on the statement");
+        }
+        final Play play = catalog.get(performance);
+        if (play == null) {
+            throw new IllegalArgumentException(String.format("unknown play: %s", performance.getPlayID()));
+        }
+        final AbstractPerformanceCalculator calculator = play.getCalculator();
+        final int amount = calculator.amountFor(performance.getAudience());
+        final int credits = calculator.volumeCredits(performance.getAudience());
+        final long newTotalAmount = Math.addExact(totalAmount, amount);
+        totalVolumeCredits = Math.addExact(totalVolumeCredits, credits);
+        totalAmount = newTotalAmount;
+
+        final StringBuilder text = new StringBuilder();
+        StatementRenderer.appendLine(text, currencyFormatter, play.getName(), amount, performance.getAudience());
+        final Line line = new Line(performance, amount, credits, text.toString());
+        line.previous = last;
+        if (last == null) {
+            first = line;
+        }
+        else {
+            last.next = line;
+        }
+        last = line;
+        lines.put(performance, line);
+        characters += line.text.length();
+        changed();
+    }
+
+    /**
+     * Removes a performance from the invoice.
+     *
+     * @param performance the performance, as it was added
+     * @return false if the performance was not on the statement
+     */
+    public boolean removePerformance(Performance performance) {
+        final Line line = lines.remove(performance);
+        if (line != null) {
+            if (line.previous == null) {
+                first = line.next;
+            }
+            else {
+                line.previous.next = line.next;
+            }
+            if (line.next == null) {
+                last = line.previous;
+            }
+            else {
+                line.next.previous = line.previous;
+            }
+            totalAmount -= line.amount;
+            totalVolumeCredits -= line.credits;
+            characters -= line.text.length();
+            changed();
+        }
+        return line != null;
+    }
+
+    private void changed() {
+        summary = null;
+        statement = null;
+    }
+
+    /**
+     * Get the number of performances on the statement.
+     *
+     * @return the number of performances
+     */
+    public int size() {
+        return lines.size();
+    }
+
+    /**
+     * Get the total amount of the statement.
+     *
+     * @return total amount in cents
+     */
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    /**
+     * Get the total volume credits of the statement.
+     *
+     * @return credits total
+     */
+    public long getTotalVolumeCredits() {
+        return totalVolumeCredits;
+    }
+
+    /**
+     * Get the invoice as it currently stands.
+     *
+     * @return a snapshot of the invoice
+     */
+    public Invoice getInvoice() {
+        final List<Performance> performances = new ArrayList<>(lines.size());
+        for (Line line = first; line != null; line = line.next) {
+            performances.add(line.performance);
+        }
+        return new Invoice(customer, performances);
+    }
+
+    /**
+     * Returns the statement as it currently stands.
+     *
+     * @return the formatted statement
+     */
+    public String statement() {
+        if (statement == null) {
+            final StringBuilder result = new StringBuilder((int) Math.min(characters + summary().length(),
+                    Integer.MAX_VALUE - 8));
+            try {
+                statement(result);
+            }
+            catch (IOException exception) {
+                // appending to a StringBuilder never fails
+                throw new UncheckedIOException(exception);
+            }
+            statement = result.toString();
+        }
+        return statement;
+    }
+
+    /**
+     * Writes the statement as it currently stands to the given destination.
+     *
+     * @param out the destination of the statement
+     * @throws IOException if the destination cannot be written to
+     */
+    public void statement(Appendable out) throws IOException {
+        if (statement == null) {
+            out.append(header);
+            for (Line line = first; line != null; line = line.next) {
+                out.append(line.text);
+            }
+            out.append(summary());
+        }
+        else {
+            out.append(statement);
+        }
+    }
+
+    private String summary() {
+        if (summary == null) {
+            final StringBuilder result = new StringBuilder();
+            StatementRenderer.appendSummary(result, currencyFormatter, totalAmount, totalVolumeCredits);
+            summary = result.toString();
+        }
+        return summary;
+    }
+
+    /**
+     * One performance on the statement with its price and rendered line.
+     */
+    private static final class Line {
+        private final Performance performance;
+        private final int amount;
+        private final int credits;
+        private final String text;
+        private Line previous;
+        private Line next;
+
+        Line(Performance performance, int amount, int credits, String text) {
+            this.performance = performance;
+            this.amount = amount;
+            this.credits = credits;
+            this.text = text;
+        }
+    }
+}
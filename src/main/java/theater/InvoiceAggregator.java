@@ -0,0 +1,258 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates performances across any number of invoices in a single pass, grouped by play, play type
+ * and customer. Every group is a slot in a set of parallel primitive arrays, so adding a performance
+ * updates a few array elements and never boxes or allocates. Aggregators over disjoint sets of invoices
+ * can be merged, so a large input can be split, aggregated in parallel and combined, e.g. with
+ * {@link #aggregate(Stream, PlayCatalog)} on a parallel stream.
+ */
+public final class InvoiceAggregator {
+
+    private final PlayCatalog catalog;
+    // groups by play, indexed by catalog ordinal; by-type totals are combined from these when asked for
+    private final Accumulators plays;
+    private final Accumulators customers;
+    private final Map<String, Integer> customerSlots = new HashMap<>();
+    private String[] customerNames = new String[Accumulators.INITIAL_CAPACITY];
+    private long unknownPerformances;
+
+    /**
+     * Creates an empty aggregator.
+     *
+     * @param catalog the plays the invoices refer to
+     */
+    public InvoiceAggregator(PlayCatalog catalog) {
+        this.catalog = catalog;
+        this.plays = new Accumulators(Math.max(catalog.size(), 1));
+        this.customers = new Accumulators(Accumulators.INITIAL_CAPACITY);
+    }
+
+    /**
+     * Aggregates a stream of invoices, in parallel if the stream is parallel.
+     *
+     * @param invoices the invoices
+     * @param catalog  the plays the invoices refer to
+     * @return the aggregated invoices
+     */
+    public static InvoiceAggregator aggregate(Stream<Invoice> invoices, PlayCatalog catalog) {
+        return invoices.collect(() -> new InvoiceAggregator(catalog), InvoiceAggregator::add,
+                InvoiceAggregator::merge);
+    }
+
+    /**
+     * Adds the performances of an invoice. Performances of plays that are not in the catalog are only counted.
+     *
+     * @param invoice the invoice
+     * @throws ArithmeticException if a total does not fit in a long
+     */
+    public void add(Invoice invoice) {
+        final int customer = slotOf(invoice.getCustomer());
+        for (Performance performance : invoice.getPerformances()) {
+            final int ordinal = ordinalOf(performance);
+            if (ordinal == PlayCatalog.UNKNOWN) {
+                unknownPerformances++;
+            }
+            else {
+                final AbstractPerformanceCalculator calculator = catalog.get(ordinal).getCalculator();
+                final int audience = performance.getAudience();
+                final int amount = calculator.amountFor(audience);
+                final int credits = calculator.volumeCredits(audience);
+                plays.add(ordinal, audience, amount, credits);
+                customers.add(customer, audience, amount, credits);
+            }
+        }
+    }
+
+    /**
+     * Adds everything aggregated by another aggregator over the same catalog to this one.
+     *
+     * @param other the other aggregator
+     * @return this aggregator
+     * @throws IllegalArgumentException if the other aggregator uses a different catalog
+     */
+    public InvoiceAggregator merge(InvoiceAggregator other) {
+        if (other.catalog != catalog) {
+            throw new IllegalArgumentException("aggregators over different play catalogs cannot be merged");
+        }
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            plays.merge(ordinal, other.plays, ordinal);
+        }
+        for (int slot = 0; slot < other.customerSlots.size(); slot++) {
+            customers.merge(slotOf(other.customerNames[slot]), other.customers, slot);
+        }
+        unknownPerformances += other.unknownPerformances;
+        return this;
+    }
+
+    /**
+     * Get the totals of every play that had performances, in catalog order.
+     *
+     * @return the totals keyed by play id
+     */
+    public Map<String, PerformanceAggregate> byPlay() {
+        final Map<String, PerformanceAggregate> result = new LinkedHashMap<>();
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            if (plays.counts[ordinal] > 0) {
+                result.put(catalog.idOf(ordinal), plays.toAggregate(ordinal));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the totals of every play type that had performances.
+     *
+     * @return the totals keyed by play type
+     */
+    public Map<String, PerformanceAggregate> byType() {
+        final Map<String, Integer> typeSlots = new LinkedHashMap<>();
+        final Accumulators types = new Accumulators(Math.max(catalog.size(), 1));
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            if (plays.counts[ordinal] > 0) {
+                final Integer slot = typeSlots.computeIfAbsent(catalog.get(ordinal).getType(),
+                        type -> typeSlots.size());
+                types.merge(slot, plays, ordinal);
+            }
+        }
+        final Map<String, PerformanceAggregate> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : typeSlots.entrySet()) {
+            result.put(entry.getKey(), types.toAggregate(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Get the totals of every customer with performances of known plays, in the order they were first seen.
+     *
+     * @return the totals keyed by customer
+     */
+    public Map<String, PerformanceAggregate> byCustomer() {
+        final Map<String, PerformanceAggregate> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < customerSlots.size(); slot++) {
+            if (customers.counts[slot] > 0) {
+                result.put(customerNames[slot], customers.toAggregate(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of performances whose play is not in the catalog.
+     *
+     * @return the unknown performance count
+     */
+    public long getUnknownPerformances() {
+        return unknownPerformances;
+    }
+
+    private int ordinalOf(Performance performance) {
+        final int ordinal = performance.getPlayOrdinal();
+        final int result;
+        // the same reference check as PlayCatalog.get(Performance)
+        if (ordinal >= 0 && ordinal < catalog.size() && catalog.idOf(ordinal) == performance.getPlayID()) {
+            result = ordinal;
+        }
+        else {
+            result = catalog.ordinalOf(performance.getPlayID());
+        }
+        return result;
+    }
+
+    private int slotOf(String customer) {
+        Integer slot = customerSlots.get(customer);
+        if (slot == null) {
+            slot = customerSlots.size();
+            customerSlots.put(customer, slot);
+            if (slot == customerNames.length) {
+                customerNames = Arrays.copyOf(customerNames, slot * 2);
+            }
+            customerNames[slot] = customer;
+            customers.ensureCapacity(slot + 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Parallel arrays of per-group totals.
+     */
+    private static final class Accumulators {
+        static final int INITIAL_CAPACITY = 16;
+
+        private long[] counts;
+        private long[] amounts;
+        private long[] credits;
+        private long[] audiences;
+        private int[] minAudiences;
+        private int[] maxAudiences;
+        private int[] minCredits;
+        private int[] maxCredits;
+
+        Accumulators(int capacity) {
+            counts = new long[capacity];
+            amounts = new long[capacity];
+            credits = new long[capacity];
+            audiences = new long[capacity];
+            minAudiences = new int[capacity];
+            maxAudiences = new int[capacity];
+            minCredits = new int[capacity];
+            maxCredits = new int[capacity];
+            Arrays.fill(minAudiences, Integer.MAX_VALUE);
+            Arrays.fill(maxAudiences, Integer.MIN_VALUE);
+            Arrays.fill(minCredits, Integer.MAX_VALUE);
+            Arrays.fill(maxCredits, Integer.MIN_VALUE);
+        }
+
+        void add(int slot, int audience, int amount, int credit) {
+            counts[slot]++;
+            amounts[slot] = Math.addExact(amounts[slot], amount);
+            credits[slot] = Math.addExact(credits[slot], credit);
+            audiences[slot] += audience;
+            minAudiences[slot] = Math.min(minAudiences[slot], audience);
+            maxAudiences[slot] = Math.max(maxAudiences[slot], audience);
+            minCredits[slot] = Math.min(minCredits[slot], credit);
+            maxCredits[slot] = Math.max(maxCredits[slot], credit);
+        }
+
+        void merge(int slot, Accumulators other, int otherSlot) {
+            counts[slot] += other.counts[otherSlot];
+            amounts[slot] = Math.addExact(amounts[slot], other.amounts[otherSlot]);
+            credits[slot] = Math.addExact(credits[slot], other.credits[otherSlot]);
+            audiences[slot] += other.audiences[otherSlot];
+            minAudiences[slot] = Math.min(minAudiences[slot], other.minAudiences[otherSlot]);
+            maxAudiences[slot] = Math.max(maxAudiences[slot], other.maxAudiences[otherSlot]);
+            minCredits[slot] = Math.min(minCredits[slot], other.minCredits[otherSlot]);
+            maxCredits[slot] = Math.max(maxCredits[slot], other.maxCredits[otherSlot]);
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > counts.length) {
+                final int oldCapacity = counts.length;
+                final int newCapacity = Math.max(capacity, oldCapacity * 2);
+                counts = Arrays.copyOf(counts, newCapacity);
+                amounts = Arrays.copyOf(amounts, newCapacity);
+                credits = Arrays.copyOf(credits, newCapacity);
+                audiences = Arrays.copyOf(audiences, newCapacity);
+                minAudiences = Arrays.copyOf(minAudiences, newCapacity);
+                maxAudiences = Arrays.copyOf(maxAudiences, newCapacity);
+                minCredits = Arrays.copyOf(minCredits, newCapacity);
+                maxCredits = Arrays.copyOf(maxCredits, newCapacity);
+                Arrays.fill(minAudiences, oldCapacity, newCapacity, Integer.MAX_VALUE);
+                Arrays.fill(maxAudiences, oldCapacity, newCapacity, Integer.MIN_VALUE);
+                Arrays.fill(minCredits, oldCapacity, newCapacity, Integer.MAX_VALUE);
+                Arrays.fill(maxCredits, oldCapacity, newCapacity, Integer.MIN_VALUE);
+            }
+        }
+
+        PerformanceAggregate toAggregate(int slot) {
+            return new PerformanceAggregate(counts[slot], amounts[slot], credits[slot], audiences[slot],
+                    minAudiences[slot], maxAudiences[slot], minCredits[slot], maxCredits[slot]);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of invoices, so that a billing run that crashed can be resumed with
+ * {@link JournalReplayer} from the offset of the first invoice it had not finished.
+ *
+ * <p>Every invoice gets the next offset, starting at 0. Records are checksummed, buffered in memory and
+ * written to segment files of a bounded size, laid out as described by {@link JournalSegment}. An
+ * appended invoice is durable once {@link #sync(long)} returned for its offset. Syncs are group commits:
+ * while one thread waits for the disk, others keep appending, and the next sync covers all of them with
+ * a single {@code fsync}, so threads that each sync after every append still share the cost.</p>
+ *
+ * <p>Plays are journaled by id, name and type whenever the catalog changes; replayed invoices are priced
+ * with the standard calculators for those types, not with a {@link PricingTable}.</p>
+ */
+public final class InvoiceJournal implements Closeable {
+
+    /**
+     * The default size at which a new segment file is started.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final int maxSegmentBytes;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(JournalSegment.RECORD_HEADER_SIZE);
+    private final CRC32C crc = new CRC32C();
+    // every invoice before this offset has been forced to disk
+    private final AtomicLong durableOffset = new AtomicLong();
+    // held by the thread forcing the journal to disk; taken before the journal's own lock
+    private final Object syncLock = new Object();
+
+    private CompactInvoiceWriter encoder;
+    private byte[] catalogRecord;
+    private FileChannel channel;
+    // bytes in the current segment, written or still in the write buffer
+    private long segmentBytes;
+    private long segmentInvoices;
+    private long nextOffset;
+    private boolean closed;
+
+    /**
+     * Opens the journal in the given directory with {@link #DEFAULT_SEGMENT_BYTES} segments.
+     *
+     * @param directory the journal directory, created if it does not exist
+     * @param catalog   the plays of the invoices appended from now on
+     * @throws IOException if the journal cannot be opened or is damaged
+     */
+    public InvoiceJournal(Path directory, PlayCatalog catalog) throws IOException {
+        this(directory, catalog, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens the journal in the given directory, or creates it. A record left incomplete by a crash at the
+     * end of the newest segment is cut off; appending continues after the last complete invoice.
+     *
+     * @param directory       the journal directory, created if it does not exist
+     * @param catalog         the plays of the invoices appended from now on
+     * @param maxSegmentBytes the size at which a new segment file is started
+     * @throws IOException if the journal cannot be opened or is damaged
+     */
+    public InvoiceJournal(Path directory, PlayCatalog catalog, int maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes <= JournalSegment.HEADER_SIZE) {
+            throw new IllegalArgumentException("segments must be larger than their header");
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(directory);
+        if (!recover(catalog)) {
+            useCatalog(catalog);
+            startSegment(0);
+        }
+        // a resumed segment has been forced, and a new one holds no invoices yet
+        durableOffset.set(nextOffset);
+    }
+
+    /**
+     * Appends an invoice. It is written out when the write buffer fills and is durable after a
+     * {@link #sync(long)} for its offset.
+     *
+     * @param invoice the invoice
+     * @return the offset of the invoice
+     * @throws IOException if the journal cannot be written to
+     */
+    public synchronized long append(Invoice invoice) throws IOException {
+        ensureOpen();
+        encoder.reset();
+        encoder.put(invoice);
+        if (segmentInvoices > 0
+                && segmentBytes + JournalSegment.RECORD_HEADER_SIZE + 1 + encoder.length() > maxSegmentBytes) {
+            rollSegment();
+        }
+        writeRecord(JournalSegment.INVOICE, encoder.buffer(), encoder.length());
+        segmentInvoices++;
+        final long result = nextOffset;
+        nextOffset++;
+        return result;
+    }
+
+    /**
+     * Switches to a new version of the play catalog for the invoices appended from now on.
+     * Nothing is written if the plays did not change.
+     *
+     * @param plays the new catalog
+     * @throws IOException if the journal cannot be written to
+     */
+    public synchronized void appendCatalog(PlayCatalog plays) throws IOException {
+        ensureOpen();
+        final byte[] previous = catalogRecord;
+        useCatalog(plays);
+        if (!Arrays.equals(previous, catalogRecord)) {
+            writeRecord(JournalSegment.CATALOG, catalogRecord, catalogRecord.length);
+        }
+    }
+
+    /**
+     * Forces every invoice up to and including the given offset to disk. If another thread is already
+     * syncing, this waits for it, and returns at once if that sync covered the offset; otherwise one
+     * sync covers everything appended while waiting.
+     *
+     * @param offset the offset of the last invoice that must be durable
+     * @throws java.nio.channels.ClosedByInterruptException if the thread was interrupted while forcing, which
+     *                                                      closes the journal
+     * @throws IOException if the journal cannot be written to
+     */
+    public void sync(long offset) throws IOException {
+        synchronized (syncLock) {
+            if (durableOffset.get() <= offset) {
+                final FileChannel target;
+                final long covered;
+                synchronized (this) {
+                    ensureOpen();
+                    flushWriteBuffer();
+                    target = channel;
+                    covered = nextOffset;
+                }
+                try {
+                    target.force(false);
+                }
+                catch (ClosedChannelException exception) {
+                    synchronized (this) {
+                        // only a rolled segment was forced before it was closed; anything else, such as an
+                        // interrupt while forcing, closed the journal's own channel with nothing forced
+                        if (target == channel) {
+                            throw exception;
+                        }
+                    }
+                }
+                advanceDurableOffset(covered);
+            }
+        }
+    }
+
+    /**
+     * Forces every invoice appended so far to disk.
+     *
+     * @throws IOException if the journal cannot be written to
+     */
+    public void sync() throws IOException {
+        sync(getNextOffset() - 1);
+    }
+
+    /**
+     * Get the offset the next invoice will be appended at.
+     *
+     * @return the number of invoices in the journal
+     */
+    public synchronized long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Get the offset up to which invoices are known to be on disk.
+     *
+     * @return the offset of the first invoice that may not be durable yet
+     */
+    public long getDurableOffset() {
+        return durableOffset.get();
+    }
+
+    /**
+     * Writes out and forces everything appended, then closes the journal.
+     *
+     * @throws IOException if the journal cannot be written to
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (!closed) {
+                    closed = true;
+                    try {
+                        flushWriteBuffer();
+                        channel.force(false);
+                        advanceDurableOffset(nextOffset);
+                    }
+                    finally {
+                        channel.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Resumes the newest segment, cutting off a record that a crash left incomplete at its end. A segment
+     * created right before a crash, before its catalog was written, is deleted, and the one before it is
+     * resumed instead. A damaged record with more bytes after it is corruption, and is reported.
+     *
+     * @param plays the plays of the invoices appended from now on
+     * @return false if the journal is empty
+     */
+    private boolean recover(PlayCatalog plays) throws IOException {
+        final List<Long> baseOffsets = JournalSegment.list(directory);
+        boolean result = false;
+        while (!result && !baseOffsets.isEmpty()) {
+            final Path path = JournalSegment.path(directory, baseOffsets.remove(baseOffsets.size() - 1));
+            final JournalSegment segment = JournalSegment.open(path);
+            if (segment != null) {
+                result = resume(segment, plays);
+                if (!result && !segment.isDamageAtEnd()) {
+                    throw JournalSegment.malformed(path, segment.getEnd(), "damaged catalog record");
+                }
+            }
+            if (!result) {
+                Files.delete(path);
+            }
+        }
+        return result;
+    }
+
+    private boolean resume(JournalSegment last, PlayCatalog plays) throws IOException {
+        final ByteBuffer view = last.view();
+        PlayCatalog journaled = null;
+        long invoices = 0;
+        while (last.next()) {
+            if (last.getType() == JournalSegment.CATALOG) {
+                journaled = last.readCatalog(view);
+            }
+            else {
+                invoices++;
+            }
+        }
+        if (journaled != null) {
+            if (!last.isDamageAtEnd()) {
+                throw JournalSegment.malformed(last.getPath(), last.getEnd(), "damaged record");
+            }
+            channel = FileChannel.open(last.getPath(), StandardOpenOption.WRITE);
+            if (last.isTorn()) {
+                channel.truncate(last.getEnd());
+            }
+            // what the previous process wrote may never have been forced; it must be before it counts as durable
+            channel.force(false);
+            channel.position(last.getEnd());
+            segmentBytes = last.getEnd();
+            segmentInvoices = invoices;
+            nextOffset = last.getBaseOffset() + invoices;
+            useCatalog(journaled);
+            appendCatalog(plays);
+        }
+        return journaled != null;
+    }
+
+    private void useCatalog(PlayCatalog plays) {
+        final CompactInvoiceWriter catalogEncoder = CompactInvoiceWriter.encoder(plays);
+        JournalSegment.putCatalog(plays, catalogEncoder);
+        encoder = CompactInvoiceWriter.encoder(plays);
+        catalogRecord = Arrays.copyOf(catalogEncoder.buffer(), catalogEncoder.length());
+    }
+
+    private void rollSegment() throws IOException {
+        flushWriteBuffer();
+        channel.force(false);
+        channel.close();
+        advanceDurableOffset(nextOffset);
+        startSegment(nextOffset);
+    }
+
+    /**
+     * Creates the segment file for invoices from the given offset and writes its header and the catalog.
+     */
+    private void startSegment(long baseOffset) throws IOException {
+        channel = FileChannel.open(JournalSegment.path(directory, baseOffset),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+        writeBuffer.putInt(JournalSegment.MAGIC).put(JournalSegment.VERSION).putLong(baseOffset);
+        segmentBytes = JournalSegment.HEADER_SIZE;
+        segmentInvoices = 0;
+        writeRecord(JournalSegment.CATALOG, catalogRecord, catalogRecord.length);
+    }
+
+    private void writeRecord(byte type, byte[] body, int length) throws IOException {
+        crc.reset();
+        crc.update(type);
+        crc.update(body, 0, length);
+        recordHeader.clear();
+        recordHeader.putInt(length + 1).putInt((int) crc.getValue()).flip();
+        final int size = JournalSegment.RECORD_HEADER_SIZE + 1 + length;
+        if (writeBuffer.remaining() < size) {
+            flushWriteBuffer();
+        }
+        if (writeBuffer.remaining() < size) {
+            // larger than the whole buffer: write it straight through
+            writeFully(recordHeader);
+            writeFully(ByteBuffer.wrap(new byte[] {type}));
+            writeFully(ByteBuffer.wrap(body, 0, length));
+        }
+        else {
+            writeBuffer.put(recordHeader).put(type).put(body, 0, length);
+        }
+        segmentBytes += size;
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void advanceDurableOffset(long offset) {
+        durableOffset.accumulateAndGet(offset, Math::max);
+    }
+
+    /**
+     * Makes the creation of a segment file durable. Not every platform can open a directory,
+     * in which case the file system is trusted to keep the entry.
+     */
+    private void syncDirectory() {
+        try (FileChannel handle = FileChannel.open(directory, StandardOpenOption.READ)) {
+            handle.force(true);
+        }
+        catch (IOException exception) {
+            // directories cannot be synced here
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("the journal is closed");
+        }
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
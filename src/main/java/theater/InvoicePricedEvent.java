@@ -0,0 +1,35 @@
+package theater;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for pricing every performance of an invoice into {@link StatementData}.
+ * Only invoices slower than the threshold are recorded unless a recording lowers it.
+ */
+@Name("theater.InvoicePriced")
+@Label("Invoice Priced")
+@Category({"Theater", "Billing"})
+@Description("The performances of an invoice were priced")
+@Threshold("20 ms")
+@StackTrace(false)
+final class InvoicePricedEvent extends Event {
+
+    @Label("Customer")
+    String customer;
+
+    @Label("Performances")
+    int performances;
+
+    @Label("Total Amount")
+    @Description("Total amount of the invoice in cents")
+    long totalAmount;
+
+    @Label("Total Volume Credits")
+    long totalVolumeCredits;
+}
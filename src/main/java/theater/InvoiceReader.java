@@ -0,0 +1,198 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads invoices one at a time from a JSON array shaped like {@code invoices.json}.
+ * Only the invoice being read is held in memory, so arbitrarily large files can be processed.
+ * Fields other than {@code customer}, {@code performances}, {@code playID} and {@code audience} are ignored;
+ * every invoice must have a {@code customer}, and nothing may follow the array.
+ */
+public class InvoiceReader implements Iterator<Invoice>, Iterable<Invoice>, Closeable {
+
+    private final Reader reader;
+    private final JsonTokenizer tokenizer;
+    // null when performances should not be resolved against a catalog
+    private final PlayCatalog catalog;
+    private boolean started;
+    private boolean finished;
+
+    public InvoiceReader(Reader reader) {
+        this(reader, null);
+    }
+
+    /**
+     * Creates a reader whose performances are created through the given catalog,
+     * so they carry play ordinals and share the catalog's play id strings.
+     *
+     * @param reader  the JSON input
+     * @param catalog the play catalog to resolve play ids against
+     */
+    public InvoiceReader(Reader reader, PlayCatalog catalog) {
+        this.reader = reader;
+        this.tokenizer = new JsonTokenizer(reader);
+        this.catalog = catalog;
+    }
+
+    /**
+     * Opens a UTF-8 encoded invoice file.
+     *
+     * @param path the file to read
+     * @return a reader over the invoices in the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static InvoiceReader open(Path path) throws IOException {
+        return open(path, null);
+    }
+
+    /**
+     * Opens a UTF-8 encoded invoice file, resolving performances against the given catalog.
+     *
+     * @param path    the file to read
+     * @param catalog the play catalog to resolve play ids against
+     * @return a reader over the invoices in the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static InvoiceReader open(Path path, PlayCatalog catalog) throws IOException {
+        return new InvoiceReader(Files.newBufferedReader(path, StandardCharsets.UTF_8), catalog);
+    }
+
+    /**
+     * Reads a single invoice object, rather than an array of them.
+     *
+     * @param reader  the JSON input
+     * @param catalog the play catalog to resolve play ids against, or null
+     * @return the invoice
+     * @throws IOException if the input cannot be read, is not valid JSON or has content after the invoice
+     */
+    static Invoice readSingle(Reader reader, PlayCatalog catalog) throws IOException {
+        final InvoiceReader invoices = new InvoiceReader(reader, catalog);
+        final Invoice result = invoices.readInvoice();
+        invoices.tokenizer.endDocument();
+        return result;
+    }
+
+    /**
+     * Whether another invoice is available.
+     *
+     * @return true if {@link #next()} will return an invoice
+     * @throws UncheckedIOException if the input cannot be read or is not valid JSON
+     */
+    @Override
+    public boolean hasNext() {
+        try {
+            if (!started) {
+                tokenizer.beginArray();
+                started = true;
+            }
+            if (!finished && !tokenizer.hasNext()) {
+                tokenizer.endArray();
+                tokenizer.endDocument();
+                finished = true;
+            }
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return !finished;
+    }
+
+    /**
+     * Reads the next invoice.
+     *
+     * @return the invoice
+     * @throws NoSuchElementException if there are no more invoices
+     * @throws UncheckedIOException   if the input cannot be read or is not valid JSON
+     */
+    @Override
+    public Invoice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return readInvoice();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Returns this reader, so that it can be used in a for-each loop. It can only be iterated once.
+     *
+     * @return this reader
+     */
+    @Override
+    public Iterator<Invoice> iterator() {
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Invoice readInvoice() throws IOException {
+        String customer = null;
+        List<Performance> performances = new ArrayList<>();
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            final String name = tokenizer.nextName();
+            if ("customer".equals(name)) {
+                customer = tokenizer.nextString();
+            }
+            else if ("performances".equals(name)) {
+                performances = readPerformances();
+            }
+            else {
+                tokenizer.skipValue();
+            }
+        }
+        if (customer == null) {
+            throw tokenizer.syntaxError("invoice has no customer");
+        }
+        tokenizer.endObject();
+        return new Invoice(customer, performances);
+    }
+
+    private List<Performance> readPerformances() throws IOException {
+        final List<Performance> performances = new ArrayList<>();
+        tokenizer.beginArray();
+        while (tokenizer.hasNext()) {
+            String playID = null;
+            int audience = 0;
+            tokenizer.beginObject();
+            while (tokenizer.hasNext()) {
+                final String name = tokenizer.nextName();
+                if ("playID".equals(name)) {
+                    playID = tokenizer.nextString();
+                }
+                else if ("audience".equals(name)) {
+                    audience = tokenizer.nextInt();
+                }
+                else {
+                    tokenizer.skipValue();
+                }
+            }
+            tokenizer.endObject();
+            if (catalog == null) {
+                performances.add(new Performance(playID, audience));
+            }
+            else {
+                performances.add(catalog.performance(playID, audience));
+            }
+        }
+        tokenizer.endArray();
+        return performances;
+    }
+}
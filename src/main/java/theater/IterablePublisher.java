@@ -0,0 +1,123 @@
+package theater;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the items of an iterable, pulling each one only when a subscriber has asked for it.
+ * Items are pulled on the thread that requested them, so a lazy iterable such as a
+ * {@link CompactInvoiceReader} is read no further ahead than the subscriber's demand.
+ *
+ * @param <T> the type of the items
+ */
+final class IterablePublisher<T> implements Flow.Publisher<T> {
+
+    private final Iterable<? extends T> items;
+
+    IterablePublisher(Iterable<? extends T> items) {
+        this.items = items;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        final IteratorSubscription<T> subscription = new IteratorSubscription<>(subscriber, items);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    /**
+     * One subscriber's pass over the items.
+     *
+     * @param <T> the type of the items
+     */
+    private static final class IteratorSubscription<T> implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Iterable<? extends T> items;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        // only used by the drain loop
+        private Iterator<? extends T> iterator;
+        private boolean terminated;
+
+        IteratorSubscription(Flow.Subscriber<? super T> subscriber, Iterable<? extends T> items) {
+            this.subscriber = subscriber;
+            this.items = items;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("non-positive request: " + n);
+            }
+            else {
+                requested.accumulateAndGet(n, (current, added) -> {
+                    final long sum = current + added;
+                    final long result;
+                    if (sum < 0) {
+                        result = Long.MAX_VALUE;
+                    }
+                    else {
+                        result = sum;
+                    }
+                    return result;
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() == 0) {
+                int missed = 1;
+                while (missed != 0) {
+                    if (!terminated) {
+                        drainOnce();
+                    }
+                    missed = wip.addAndGet(-missed);
+                }
+            }
+        }
+
+        private void drainOnce() {
+            try {
+                if (iterator == null) {
+                    iterator = items.iterator();
+                }
+                long delivered = 0;
+                final long demand = requested.get();
+                while (delivered < demand && !cancelled && error == null && iterator.hasNext()) {
+                    subscriber.onNext(iterator.next());
+                    delivered++;
+                }
+                if (delivered > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-delivered);
+                }
+                if (cancelled) {
+                    terminated = true;
+                }
+                else if (error != null) {
+                    terminated = true;
+                    subscriber.onError(error);
+                }
+                else if (!iterator.hasNext()) {
+                    terminated = true;
+                    subscriber.onComplete();
+                }
+            }
+            catch (RuntimeException exception) {
+                // thrown by the iterator, e.g. for malformed input
+                terminated = true;
+                subscriber.onError(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Replays the invoices of an {@link InvoiceJournal} from a given offset, handing each one to a
+ * {@link StatementPrinter} built against the play catalog that was in effect when it was appended.
+ * Replay starts at the segment holding the offset, so earlier segments are not read.
+ */
+public final class JournalReplayer {
+
+    /**
+     * Receives the replayed invoices.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Handles one replayed invoice.
+         *
+         * @param offset  the offset of the invoice in the journal
+         * @param printer a printer for the invoice and the plays it was appended with
+         * @throws IOException if the statement cannot be written
+         */
+        void accept(long offset, StatementPrinter printer) throws IOException;
+    }
+
+    private final Path directory;
+
+    /**
+     * Creates a replayer for the journal in the given directory.
+     *
+     * @param directory the journal directory
+     */
+    public JournalReplayer(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Replays every invoice from the given offset on. A record left incomplete by a crash at the end of the
+     * journal ends the replay; damage anywhere else is reported, and so is an offset older than the oldest
+     * segment, whose invoices are no longer in the journal.
+     *
+     * @param fromOffset the offset of the first invoice to replay
+     * @param handler    receives the invoices, in offset order
+     * @return the offset after the last invoice in the journal, where a later replay can continue
+     * @throws IOException if the journal cannot be read or is damaged, or the handler fails
+     */
+    public long replay(long fromOffset, Handler handler) throws IOException {
+        final List<Long> baseOffsets = JournalSegment.list(directory);
+        int first = 0;
+        while (first + 1 < baseOffsets.size() && baseOffsets.get(first + 1) <= fromOffset) {
+            first++;
+        }
+        long result = 0;
+        if (!baseOffsets.isEmpty()) {
+            result = baseOffsets.get(first);
+            if (fromOffset < result) {
+                throw new IOException(String.format("journal is missing invoices %d to %d", fromOffset, result - 1));
+            }
+            for (int i = first; i < baseOffsets.size(); i++) {
+                final boolean newest = i == baseOffsets.size() - 1;
+                final JournalSegment segment = JournalSegment.open(JournalSegment.path(directory, baseOffsets.get(i)));
+                if (segment == null && !newest) {
+                    throw new IOException(String.format("journal segment %d is empty", baseOffsets.get(i)));
+                }
+                if (segment != null) {
+                    if (segment.getBaseOffset() != baseOffsets.get(i)) {
+                        throw JournalSegment.malformed(segment.getPath(), Integer.BYTES + 1, "wrong base offset");
+                    }
+                    result = replay(segment, fromOffset, handler);
+                    if (segment.isTorn() && (!newest || !segment.isDamageAtEnd())) {
+                        throw JournalSegment.malformed(segment.getPath(), segment.getEnd(), "damaged record");
+                    }
+                }
+                if (!newest && result != baseOffsets.get(i + 1)) {
+                    throw new IOException(String.format("journal is missing invoices %d to %d",
+                            result, baseOffsets.get(i + 1) - 1));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long replay(JournalSegment segment, long fromOffset, Handler handler) throws IOException {
+        final ByteBuffer view = segment.view();
+        long offset = segment.getBaseOffset();
+        PlayCatalog catalog = null;
+        CompactInvoiceReader invoices = null;
+        while (segment.next()) {
+            if (segment.getType() == JournalSegment.CATALOG) {
+                catalog = segment.readCatalog(view);
+                invoices = CompactInvoiceReader.withoutHeader(view, catalog);
+            }
+            else if (segment.getType() != JournalSegment.INVOICE || invoices == null) {
+                throw JournalSegment.malformed(segment.getPath(), segment.getEnd(), "unexpected record");
+            }
+            else {
+                if (offset >= fromOffset) {
+                    handler.accept(offset, new StatementPrinter(readInvoice(segment, view, invoices), catalog));
+                }
+                offset++;
+            }
+        }
+        return offset;
+    }
+
+    private static Invoice readInvoice(JournalSegment segment, ByteBuffer view, CompactInvoiceReader invoices)
+            throws IOException {
+        segment.body(view);
+        final Invoice result;
+        try {
+            result = invoices.next();
+        }
+        catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+        if (view.hasRemaining()) {
+            throw JournalSegment.malformed(segment.getPath(), view.position(), "invoice record has trailing bytes");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,314 @@
+package theater;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Layout of one segment file of an {@link InvoiceJournal}, and a cursor over its records.
+ *
+ * <pre>
+ * segment = magic version baseOffset record*
+ * record  = int(payloadLength) int(crc32c(payload)) payload
+ * payload = INVOICE invoice | CATALOG varint(playCount) (string(id) string(name) string(type))*
+ * </pre>
+ *
+ * <p>Segments are named after the offset of their first invoice, and every segment starts with the
+ * catalog in effect, so a segment can be replayed without the ones before it. Invoices are encoded as
+ * in {@link CompactInvoiceFormat}, against the most recent catalog record. A record that is cut short
+ * or fails its checksum ends the segment: at the end of the newest segment it is the write that a
+ * crash interrupted, anywhere else it is corruption.</p>
+ */
+final class JournalSegment {
+
+    static final int MAGIC = 0x54484A4C;
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES;
+    static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    static final byte INVOICE = 1;
+    static final byte CATALOG = 2;
+
+    private static final String SUFFIX = ".journal";
+    private static final String NAME_FORMAT = "%020d" + SUFFIX;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final long baseOffset;
+    private final CRC32C crc = new CRC32C();
+    // the record the cursor is on
+    private byte type;
+    private int payloadStart;
+    private int end;
+    private boolean torn;
+
+    private JournalSegment(Path path, ByteBuffer buffer, long baseOffset) {
+        this.path = path;
+        this.buffer = buffer;
+        this.baseOffset = baseOffset;
+        this.end = HEADER_SIZE;
+    }
+
+    /**
+     * Maps a segment file into memory and checks its header.
+     *
+     * @param path the segment file
+     * @return a cursor before the first record, or null if the file is too short to hold a header,
+     *         as left by a crash right after the segment was created
+     * @throws IOException if the file cannot be mapped or is not a journal segment
+     */
+    static JournalSegment open(Path path) throws IOException {
+        JournalSegment result = null;
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large to map", path));
+            }
+            if (channel.size() >= HEADER_SIZE) {
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt(0) != MAGIC || buffer.get(Integer.BYTES) != VERSION) {
+                    throw malformed(path, 0, "not a journal segment");
+                }
+                result = new JournalSegment(path, buffer, buffer.getLong(Integer.BYTES + 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the path of the segment whose first invoice has the given offset.
+     *
+     * @param directory  the journal directory
+     * @param baseOffset the offset of the first invoice of the segment
+     * @return the segment file
+     */
+    static Path path(Path directory, long baseOffset) {
+        return directory.resolve(String.format(NAME_FORMAT, baseOffset));
+    }
+
+    /**
+     * Lists the base offsets of the segments in a journal directory.
+     *
+     * @param directory the journal directory
+     * @return the base offsets, in ascending order
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Long> list(Path directory) throws IOException {
+        final List<Long> result = new ArrayList<>();
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path segment : segments) {
+                final String name = segment.getFileName().toString();
+                try {
+                    result.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+                }
+                catch (NumberFormatException exception) {
+                    // not named by this journal
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Moves to the next record, checking its length and checksum.
+     *
+     * @return true if the cursor is on a valid record, false at the end of the segment or at a
+     *         damaged record, see {@link #isTorn()}
+     */
+    boolean next() {
+        final int start = end;
+        final int remaining = buffer.limit() - start;
+        boolean result = false;
+        if (remaining >= RECORD_HEADER_SIZE) {
+            final int length = buffer.getInt(start);
+            if (length > 0 && length <= remaining - RECORD_HEADER_SIZE) {
+                final ByteBuffer payload = buffer.duplicate();
+                payload.limit(start + RECORD_HEADER_SIZE + length).position(start + RECORD_HEADER_SIZE);
+                crc.reset();
+                crc.update(payload);
+                result = (int) crc.getValue() == buffer.getInt(start + Integer.BYTES);
+            }
+        }
+        if (result) {
+            type = buffer.get(start + RECORD_HEADER_SIZE);
+            payloadStart = start + RECORD_HEADER_SIZE + 1;
+            end = start + RECORD_HEADER_SIZE + buffer.getInt(start);
+        }
+        else {
+            torn = remaining > 0;
+        }
+        return result;
+    }
+
+    /**
+     * Positions the given view of this segment on the body of the current record, after its type.
+     *
+     * @param view a view created by {@link #view()}
+     * @return the view
+     */
+    ByteBuffer body(ByteBuffer view) {
+        view.limit(end).position(payloadStart);
+        return view;
+    }
+
+    /**
+     * Creates a view of this segment for reading record bodies through {@link #body(ByteBuffer)}.
+     *
+     * @return the view
+     */
+    ByteBuffer view() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Get the type of the current record.
+     *
+     * @return {@link #INVOICE} or {@link #CATALOG}
+     */
+    byte getType() {
+        return type;
+    }
+
+    /**
+     * Get the byte offset just after the last valid record so far.
+     *
+     * @return the byte offset in the file
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * Whether the segment continues past its last valid record with bytes that are not a valid record.
+     *
+     * @return true if the last record is cut short or damaged
+     */
+    boolean isTorn() {
+        return torn;
+    }
+
+    /**
+     * Whether what follows the last valid record looks like a write that a crash cut short: a record that
+     * runs up to or past the end of the file, or bytes that were never written. A damaged record followed
+     * by more bytes can only be corruption.
+     *
+     * @return true if the segment ends at its last valid record or in a record cut short
+     */
+    boolean isDamageAtEnd() {
+        final int remaining = buffer.limit() - end;
+        boolean result = true;
+        if (remaining >= RECORD_HEADER_SIZE) {
+            final int length = buffer.getInt(end);
+            if (length > 0) {
+                result = (long) RECORD_HEADER_SIZE + length >= remaining;
+            }
+            else {
+                // space the file system allocated but the crash kept from being written reads as zeros
+                for (int i = end; result && i < buffer.limit(); i++) {
+                    result = buffer.get(i) == 0;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the offset of the first invoice of this segment.
+     *
+     * @return the base offset
+     */
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    /**
+     * Get the segment file.
+     *
+     * @return the path
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Decodes the current record as a catalog.
+     *
+     * @param view a view created by {@link #view()}
+     * @return the catalog
+     * @throws IOException if the record is malformed
+     */
+    PlayCatalog readCatalog(ByteBuffer view) throws IOException {
+        final ByteBuffer body = body(view);
+        final Map<String, Play> plays = new HashMap<>();
+        try {
+            final int count = CompactInvoiceFormat.getVarint(body);
+            for (int i = 0; i < count; i++) {
+                final String playID = readString(body);
+                final String name = readString(body);
+                final String type = readString(body);
+                plays.put(playID, new Play(name, type));
+            }
+        }
+        catch (BufferUnderflowException exception) {
+            throw malformed(path, body.position(), "catalog record is cut short");
+        }
+        return new PlayCatalog(plays);
+    }
+
+    /**
+     * Encodes a catalog record body.
+     *
+     * @param catalog the catalog
+     * @param encoder the encoder to append the body to
+     */
+    static void putCatalog(PlayCatalog catalog, CompactInvoiceWriter encoder) {
+        encoder.putVarint(catalog.size());
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            final Play play = catalog.get(ordinal);
+            encoder.putString(catalog.idOf(ordinal));
+            encoder.putString(play.getName());
+            encoder.putString(play.getType());
+        }
+    }
+
+    /**
+     * Creates the exception for a damaged segment.
+     *
+     * @param path     the segment file
+     * @param position the byte offset of the problem
+     * @param message  what is wrong
+     * @return the exception
+     */
+    static IOException malformed(Path path, int position, String message) {
+        return new IOException(String.format("damaged journal segment %s at byte %d: %s", path, position, message));
+    }
+
+    private String readString(ByteBuffer body) throws IOException {
+        final int length = CompactInvoiceFormat.getVarint(body);
+        final String result;
+        if (length == 0) {
+            result = null;
+        }
+        else if (length - 1 > body.remaining() || length < 0) {
+            throw malformed(path, body.position(), String.format("bad length %d", length));
+        }
+        else {
+            final byte[] bytes = new byte[length - 1];
+            body.get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+}
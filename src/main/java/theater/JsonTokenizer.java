@@ -0,0 +1,298 @@
+package theater;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A minimal pull-style JSON tokenizer over a {@link Reader}. Values are read one at a time,
+ * so only the value currently being read is held in memory, never the whole document.
+ */
+final class JsonTokenizer {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_DEPTH = 16;
+    private static final int HEX_DIGITS = 4;
+    private static final int HEX_RADIX = 16;
+    private static final int DECIMAL_RADIX = 10;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder scratch = new StringBuilder();
+    private int position;
+    private int limit;
+    private long consumed;
+
+    // whether the container at each nesting level has not produced an element yet
+    private boolean[] firstElement = new boolean[INITIAL_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    JsonTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    void beginArray() throws IOException {
+        beforeValue();
+        expect('[');
+        push();
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+        depth--;
+    }
+
+    /**
+     * Checks that nothing but whitespace follows the top-level value.
+     *
+     * @throws IOException if the input cannot be read or has content after the value
+     */
+    void endDocument() throws IOException {
+        if (peek() != -1) {
+            throw syntaxError("expected end of input");
+        }
+    }
+
+    void beginObject() throws IOException {
+        beforeValue();
+        expect('{');
+        push();
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+        depth--;
+    }
+
+    /**
+     * Whether the current array or object has another element.
+     *
+     * @return false if the next token closes the current array or object
+     * @throws IOException if the input cannot be read
+     */
+    boolean hasNext() throws IOException {
+        final int next = peek();
+        return next != ']' && next != '}' && next != -1;
+    }
+
+    String nextName() throws IOException {
+        beforeValue();
+        final String name = readString();
+        expect(':');
+        afterName = true;
+        return name;
+    }
+
+    String nextString() throws IOException {
+        beforeValue();
+        return readString();
+    }
+
+    int nextInt() throws IOException {
+        beforeValue();
+        int next = peek();
+        final boolean negative = next == '-';
+        if (negative) {
+            position++;
+            next = peekRaw();
+        }
+        if (next < '0' || next > '9') {
+            throw syntaxError("expected an integer");
+        }
+        long value = 0;
+        while (next >= '0' && next <= '9') {
+            value = value * DECIMAL_RADIX + (next - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw syntaxError("integer out of range");
+            }
+            position++;
+            next = peekRaw();
+        }
+        if (next == '.' || next == 'e' || next == 'E') {
+            throw syntaxError("expected an integer");
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw syntaxError("integer out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Skips the next value, including everything nested inside it.
+     *
+     * @throws IOException if the input cannot be read or is not valid JSON
+     */
+    void skipValue() throws IOException {
+        beforeValue();
+        final int next = peek();
+        if (next == '[') {
+            expect('[');
+            push();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+        }
+        else if (next == '{') {
+            expect('{');
+            push();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        }
+        else if (next == '"') {
+            readString();
+        }
+        else {
+            skipLiteral();
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        int next = peek();
+        final int start = position;
+        while (next != -1 && next != ',' && next != ']' && next != '}' && !Character.isWhitespace(next)) {
+            position++;
+            next = peekRaw();
+        }
+        if (position == start) {
+            throw syntaxError("expected a value");
+        }
+    }
+
+    private void push() {
+        if (depth == firstElement.length) {
+            firstElement = Arrays.copyOf(firstElement, depth * 2);
+        }
+        firstElement[depth] = true;
+        depth++;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        }
+        else if (depth > 0) {
+            if (firstElement[depth - 1]) {
+                firstElement[depth - 1] = false;
+            }
+            else {
+                expect(',');
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        scratch.setLength(0);
+        while (true) {
+            final int next = read();
+            if (next == '"') {
+                break;
+            }
+            if (next == -1) {
+                throw syntaxError("unterminated string");
+            }
+            if (next == '\\') {
+                scratch.append(readEscape());
+            }
+            else {
+                scratch.append((char) next);
+            }
+        }
+        return scratch.toString();
+    }
+
+    private char readEscape() throws IOException {
+        final int next = read();
+        final char result;
+        switch (next) {
+            case '"':
+            case '\\':
+            case '/':
+                result = (char) next;
+                break;
+            case 'b':
+                result = '\b';
+                break;
+            case 'f':
+                result = '\f';
+                break;
+            case 'n':
+                result = '\n';
+                break;
+            case 'r':
+                result = '\r';
+                break;
+            case 't':
+                result = '\t';
+                break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < HEX_DIGITS; i++) {
+                    final int digit = Character.digit(read(), HEX_RADIX);
+                    if (digit < 0) {
+                        throw syntaxError("malformed unicode escape");
+                    }
+                    code = code * HEX_RADIX + digit;
+                }
+                result = (char) code;
+                break;
+            default:
+                throw syntaxError("malformed escape");
+        }
+        return result;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) {
+            throw syntaxError("expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Returns the next non-whitespace character without consuming it.
+     */
+    private int peek() throws IOException {
+        int next = peekRaw();
+        while (next != -1 && Character.isWhitespace(next)) {
+            position++;
+            next = peekRaw();
+        }
+        return next;
+    }
+
+    private int peekRaw() throws IOException {
+        int result = -1;
+        if (position < limit || fill()) {
+            result = buffer[position];
+        }
+        return result;
+    }
+
+    private int read() throws IOException {
+        final int result = peekRaw();
+        if (result != -1) {
+            position++;
+        }
+        return result;
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        position = 0;
+        limit = Math.max(reader.read(buffer, 0, buffer.length), 0);
+        return limit > 0;
+    }
+
+    IOException syntaxError(String message) {
+        return new IOException(String.format("malformed JSON at character %d: %s", consumed + position, message));
+    }
+}
@@ -0,0 +1,121 @@
+package theater;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of non-negative values, usually latencies in nanoseconds, with buckets laid out
+ * like an HDR histogram: exact below 128, and above that 64 buckets per power of two, so every recorded
+ * value is reproduced within 1/64 of itself whatever its magnitude. Recording is a few atomic adds
+ * and never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int HIGHEST_BIT = Long.SIZE - 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+            + (HIGHEST_BIT - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKET_COUNT;
+    private static final double PERCENT = 100.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        final long recorded = Math.max(value, 0);
+        counts.incrementAndGet(indexOf(recorded));
+        count.incrementAndGet();
+        sum.addAndGet(recorded);
+        max.accumulateAndGet(recorded, Math::max);
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        final long values = count.get();
+        final double result;
+        if (values == 0) {
+            result = 0;
+        }
+        else {
+            result = (double) sum.get() / values;
+        }
+        return result;
+    }
+
+    /**
+     * Get the value below which the given percentage of the recorded values fall.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the highest value equivalent to that percentile's bucket, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long values = count.get();
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, PERCENT) / PERCENT * values));
+        long seen = 0;
+        long result = 0;
+        for (int index = 0; index < BUCKET_COUNT && seen < rank && values > 0; index++) {
+            seen += counts.get(index);
+            if (seen >= rank) {
+                result = Math.min(highestValueIn(index), max.get());
+            }
+        }
+        return result;
+    }
+
+    private static int indexOf(long value) {
+        final int result;
+        if (value < SUB_BUCKET_COUNT) {
+            result = (int) value;
+        }
+        else {
+            // keep the top SUB_BUCKET_BITS bits of the value, of which the first is always set
+            final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+            final int subBucket = (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+            result = SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + subBucket;
+        }
+        return result;
+    }
+
+    private static long highestValueIn(int index) {
+        final long result;
+        if (index < SUB_BUCKET_COUNT) {
+            result = index;
+        }
+        else {
+            final int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+            final long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+            result = (subBucket + 1 << shift) - 1;
+        }
+        return result;
+    }
+}
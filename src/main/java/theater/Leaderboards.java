@@ -0,0 +1,119 @@
+package theater;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Streaming leaderboards of the customers owing the most and the plays earning the most volume credits,
+ * priced the same way as {@link StatementPrinter}. Leaderboards over disjoint partitions of the invoices
+ * can be merged, e.g. with {@link #collect(Stream, Supplier)} on a parallel stream.
+ */
+public final class Leaderboards {
+
+    private final PlayCatalog catalog;
+    private final TopK customersByAmount;
+    private final TopK playsByCredits;
+    private long unknownPerformances;
+
+    /**
+     * Creates exact leaderboards.
+     *
+     * @param catalog the plays the invoices refer to
+     * @param k       the number of customers and plays to report
+     */
+    public Leaderboards(PlayCatalog catalog, int k) {
+        this(catalog, k, new TopK(k));
+    }
+
+    /**
+     * Creates leaderboards whose customer totals are estimated by a count-min sketch, for more customers
+     * than fit in memory. Plays are always counted exactly, since there are only as many as in the catalog.
+     *
+     * @param catalog     the plays the invoices refer to
+     * @param k           the number of customers and plays to report
+     * @param sketchWidth the number of counters per sketch row
+     * @param sketchDepth the number of sketch rows
+     */
+    public Leaderboards(PlayCatalog catalog, int k, int sketchWidth, int sketchDepth) {
+        this(catalog, k, new TopK(k, sketchWidth, sketchDepth));
+    }
+
+    private Leaderboards(PlayCatalog catalog, int k, TopK customersByAmount) {
+        this.catalog = catalog;
+        this.customersByAmount = customersByAmount;
+        this.playsByCredits = new TopK(k);
+    }
+
+    /**
+     * Collects a stream of invoices, in parallel if the stream is parallel.
+     *
+     * @param invoices the invoices
+     * @param factory  creates the empty leaderboards of each partition, all with the same parameters
+     * @return the leaderboards of all invoices
+     */
+    public static Leaderboards collect(Stream<Invoice> invoices, Supplier<Leaderboards> factory) {
+        return invoices.collect(factory, Leaderboards::add, Leaderboards::merge);
+    }
+
+    /**
+     * Adds an invoice. Performances of plays that are not in the catalog are only counted.
+     *
+     * @param invoice the invoice
+     */
+    public void add(Invoice invoice) {
+        final StatementPrinter printer = new StatementPrinter(invoice, catalog);
+        long amount = 0;
+        for (Performance performance : invoice.getPerformances()) {
+            final Play play = printer.getPlay(performance);
+            if (play == null) {
+                unknownPerformances++;
+            }
+            else {
+                amount = Math.addExact(amount, printer.getAmount(performance, play));
+                playsByCredits.add(performance.getPlayID(), printer.getVolumeCredits(performance, play));
+            }
+        }
+        customersByAmount.add(invoice.getCustomer(), amount);
+    }
+
+    /**
+     * Adds everything added to other leaderboards with the same parameters to these.
+     *
+     * @param other the other leaderboards
+     * @return these leaderboards
+     */
+    public Leaderboards merge(Leaderboards other) {
+        customersByAmount.merge(other.customersByAmount);
+        playsByCredits.merge(other.playsByCredits);
+        unknownPerformances += other.unknownPerformances;
+        return this;
+    }
+
+    /**
+     * Get the customers owing the most, largest amount first.
+     *
+     * @return the customers with their total amounts in cents
+     */
+    public List<TopK.Entry> getTopCustomers() {
+        return customersByAmount.top();
+    }
+
+    /**
+     * Get the plays earning the most volume credits, most first.
+     *
+     * @return the play ids with their total credits
+     */
+    public List<TopK.Entry> getTopPlays() {
+        return playsByCredits.top();
+    }
+
+    /**
+     * Get the number of performances whose play is not in the catalog.
+     *
+     * @return the unknown performance count
+     */
+    public long getUnknownPerformances() {
+        return unknownPerformances;
+    }
+}
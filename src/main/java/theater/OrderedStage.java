@@ -0,0 +1,269 @@
+package theater;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * A processor applying a function to every item on an executor, a bounded number of items at a time,
+ * and publishing the results in input order.
+ *
+ * <p>At most {@code bufferSize} items are requested from upstream that have not yet been passed on
+ * downstream, whether they are waiting, being processed or done and waiting for demand. Upstream is
+ * only asked for more as results are delivered, so a slow subscriber holds back the publisher instead
+ * of letting results pile up. All signals to the subscriber come from one drain loop at a time.</p>
+ *
+ * @param <T> the type of the items received
+ * @param <R> the type of the items published
+ */
+final class OrderedStage<T, R> implements Flow.Processor<T, R>, Flow.Subscription {
+
+    private final Function<? super T, ? extends R> function;
+    private final Executor executor;
+    private final int parallelism;
+    private final int bufferSize;
+    // results by sequence number modulo the buffer size; null until the item is processed
+    private final AtomicReferenceArray<R> results;
+    private final Queue<Slot<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicReference<Flow.Subscriber<? super R>> downstream = new AtomicReference<>();
+
+    private volatile Flow.Subscription upstream;
+    private volatile long received;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    // only used by the drain loop
+    private long emitted;
+    private boolean terminated;
+
+    /**
+     * Creates a stage.
+     *
+     * @param function    the function applied to every item; it must not return null
+     * @param executor    the executor to apply the function on
+     * @param parallelism the most items processed at a time
+     * @param bufferSize  the most items held by this stage at a time
+     */
+    OrderedStage(Function<? super T, ? extends R> function, Executor executor, int parallelism, int bufferSize) {
+        if (parallelism < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException("parallelism and buffer size must be positive");
+        }
+        this.function = function;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.bufferSize = bufferSize;
+        this.results = new AtomicReferenceArray<>(bufferSize);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        if (downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(this);
+            drain();
+        }
+        else {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    // never publishes
+                }
+
+                @Override
+                public void cancel() {
+                    // nothing to cancel
+                }
+            });
+            subscriber.onError(new IllegalStateException("a stage has only one subscriber"));
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+        }
+        else {
+            upstream = subscription;
+            subscription.request(bufferSize);
+        }
+    }
+
+    @Override
+    public void onNext(T item) {
+        final long sequence = received;
+        pending.add(new Slot<>(sequence, item));
+        received = sequence + 1;
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            error = new IllegalArgumentException("non-positive request: " + n);
+        }
+        else {
+            requested.accumulateAndGet(n, OrderedStage::addCapped);
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        cancelUpstream();
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() == 0) {
+            int missed = 1;
+            while (missed != 0) {
+                drainOnce();
+                missed = wip.addAndGet(-missed);
+            }
+        }
+    }
+
+    private void drainOnce() {
+        final Flow.Subscriber<? super R> subscriber = downstream.get();
+        if (!terminated && cancelled) {
+            terminated = true;
+            pending.clear();
+        }
+        else if (!terminated && subscriber != null) {
+            if (error == null) {
+                emit(subscriber);
+                start();
+                if (done && emitted == received && error == null) {
+                    terminated = true;
+                    subscriber.onComplete();
+                }
+            }
+            else {
+                terminated = true;
+                pending.clear();
+                cancelUpstream();
+                subscriber.onError(error);
+            }
+        }
+    }
+
+    /**
+     * Passes on as many consecutive results as the subscriber asked for and asks upstream for as many new items.
+     */
+    private void emit(Flow.Subscriber<? super R> subscriber) {
+        final long demand = requested.get();
+        long delivered = 0;
+        R next = results.get(index(emitted));
+        while (delivered < demand && next != null && !cancelled) {
+            results.set(index(emitted), null);
+            emitted++;
+            delivered++;
+            subscriber.onNext(next);
+            next = results.get(index(emitted));
+        }
+        if (delivered > 0) {
+            if (demand != Long.MAX_VALUE) {
+                requested.addAndGet(-delivered);
+            }
+            upstream.request(delivered);
+        }
+    }
+
+    /**
+     * Hands waiting items to the executor while fewer than the parallelism are being processed.
+     * Only the drain loop starts items, so the check and the increment cannot race with each other.
+     */
+    private void start() {
+        while (running.get() < parallelism && !pending.isEmpty()) {
+            final Slot<T> slot = pending.poll();
+            running.incrementAndGet();
+            try {
+                executor.execute(() -> process(slot));
+            }
+            catch (RejectedExecutionException exception) {
+                running.decrementAndGet();
+                error = exception;
+            }
+        }
+    }
+
+    private void process(Slot<T> slot) {
+        try {
+            final R result = function.apply(slot.item);
+            if (result == null) {
+                throw new NullPointerException("stage function returned null");
+            }
+            results.set(index(slot.sequence), result);
+        }
+        catch (RuntimeException exception) {
+            error = exception;
+        }
+        finally {
+            running.decrementAndGet();
+            drain();
+        }
+    }
+
+    private void cancelUpstream() {
+        final Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % bufferSize);
+    }
+
+    private static long addCapped(long current, long n) {
+        final long sum = current + n;
+        final long result;
+        if (sum < 0) {
+            result = Long.MAX_VALUE;
+        }
+        else {
+            result = sum;
+        }
+        return result;
+    }
+
+    /**
+     * An item waiting to be processed, with its position in the input.
+     *
+     * @param <T> the type of the item
+     */
+    private static final class Slot<T> {
+        private final long sequence;
+        private final T item;
+
+        Slot(long sequence, T item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+}
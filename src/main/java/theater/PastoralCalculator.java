@@ -0,0 +1,39 @@
+package theater;
+
+/**
+ * Performance calculator for pastorals.
+ */
+public final class PastoralCalculator extends AbstractPerformanceCalculator {
+
+    static final PastoralCalculator INSTANCE = new PastoralCalculator();
+    private static final PricingRule RULE = new PricingRule(Constants.PASTORAL_BASE_AMOUNT, 0,
+            Constants.PASTORAL_AUDIENCE_THRESHOLD, Constants.PASTORAL_OVER_BASE_CAPACITY_PER_PERSON, 0,
+            Constants.PASTORAL_VOLUME_CREDIT_THRESHOLD, Constants.PASTORAL_EXTRA_VOLUME_FACTOR);
+
+    private PastoralCalculator() {
+        // shared instance only
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        int result = Constants.PASTORAL_BASE_AMOUNT;
+        if (audience > Constants.PASTORAL_AUDIENCE_THRESHOLD) {
+            result = Math.addExact(result, Math.multiplyExact(Constants.PASTORAL_OVER_BASE_CAPACITY_PER_PERSON,
+                    audience - Constants.PASTORAL_AUDIENCE_THRESHOLD));
+        }
+        return result;
+    }
+
+    @Override
+    public int volumeCredits(int audience) {
+        // Pastoral performances earn more credits: base plus an extra bonus
+        // of one additional credit for every two attendees
+        return Math.addExact(Math.max(audience - Constants.PASTORAL_VOLUME_CREDIT_THRESHOLD, 0),
+                audience / Constants.PASTORAL_EXTRA_VOLUME_FACTOR);
+    }
+
+    @Override
+    PricingRule rule() {
+        return RULE;
+    }
+}
@@ -8,10 +8,16 @@ public class Performance {
     // fields must be private and have accessor methods
     private final String playID;
     private final int audience;
+    private final int playOrdinal;
 
     public Performance(String playID, int audience) {
+        this(playID, audience, PlayCatalog.UNKNOWN);
+    }
+
+    Performance(String playID, int audience, int playOrdinal) {
         this.playID = playID;
         this.audience = audience;
+        this.playOrdinal = playOrdinal;
     }
 
     /**
@@ -31,4 +37,13 @@ public class Performance {
     public int getAudience() {
         return audience;
     }
+
+    /**
+     * Get the ordinal of the play in the catalog this performance was created through.
+     *
+     * @return the play ordinal, or {@link PlayCatalog#UNKNOWN}
+     */
+    public int getPlayOrdinal() {
+        return playOrdinal;
+    }
 }
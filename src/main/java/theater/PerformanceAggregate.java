@@ -0,0 +1,134 @@
+package theater;
+
+/**
+ * Totals over a group of performances: how many there were, what they cost, and the spread of the credits
+ * they earned and of their audiences.
+ */
+public final class PerformanceAggregate {
+
+    private final long performances;
+    private final long totalAmount;
+    private final long totalVolumeCredits;
+    private final long totalAudience;
+    private final int minAudience;
+    private final int maxAudience;
+    private final int minVolumeCredits;
+    private final int maxVolumeCredits;
+
+    PerformanceAggregate(long performances, long totalAmount, long totalVolumeCredits, long totalAudience,
+                         int minAudience, int maxAudience, int minVolumeCredits, int maxVolumeCredits) {
+        this.performances = performances;
+        this.totalAmount = totalAmount;
+        this.totalVolumeCredits = totalVolumeCredits;
+        this.totalAudience = totalAudience;
+        this.minAudience = minAudience;
+        this.maxAudience = maxAudience;
+        this.minVolumeCredits = minVolumeCredits;
+        this.maxVolumeCredits = maxVolumeCredits;
+    }
+
+    /**
+     * Get the number of performances in the group.
+     *
+     * @return the performance count
+     */
+    public long getPerformances() {
+        return performances;
+    }
+
+    /**
+     * Get the total amount of the group.
+     *
+     * @return total amount in cents
+     */
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    /**
+     * Get the total volume credits of the group.
+     *
+     * @return credits total
+     */
+    public long getTotalVolumeCredits() {
+        return totalVolumeCredits;
+    }
+
+    /**
+     * Get the fewest volume credits a performance in the group earned.
+     *
+     * @return the minimum credits of a performance
+     */
+    public int getMinVolumeCredits() {
+        return minVolumeCredits;
+    }
+
+    /**
+     * Get the most volume credits a performance in the group earned.
+     *
+     * @return the maximum credits of a performance
+     */
+    public int getMaxVolumeCredits() {
+        return maxVolumeCredits;
+    }
+
+    /**
+     * Get the mean volume credits of a performance in the group.
+     *
+     * @return the average credits of a performance, or 0 for a group without performances
+     */
+    public double getAverageVolumeCredits() {
+        return average(totalVolumeCredits);
+    }
+
+    /**
+     * Get the total audience of the group.
+     *
+     * @return the sum of the audience sizes
+     */
+    public long getTotalAudience() {
+        return totalAudience;
+    }
+
+    /**
+     * Get the smallest audience in the group.
+     *
+     * @return the minimum audience size
+     */
+    public int getMinAudience() {
+        return minAudience;
+    }
+
+    /**
+     * Get the largest audience in the group.
+     *
+     * @return the maximum audience size
+     */
+    public int getMaxAudience() {
+        return maxAudience;
+    }
+
+    /**
+     * Get the mean audience of the group.
+     *
+     * @return the average audience size, or 0 for a group without performances
+     */
+    public double getAverageAudience() {
+        return average(totalAudience);
+    }
+
+    private double average(long total) {
+        double result = 0;
+        if (performances > 0) {
+            result = (double) total / performances;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d performances, amount %d, credits %d %d..%d (avg %.1f), audience %d..%d (avg %.1f)",
+                performances, totalAmount, totalVolumeCredits, minVolumeCredits, maxVolumeCredits,
+                getAverageVolumeCredits(), minAudience, maxAudience, getAverageAudience());
+    }
+}
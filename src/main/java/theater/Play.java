@@ -10,10 +10,24 @@ public class Play {
     // fields must be private and have accessor methods
     private final String name;
     private final String type;
+    // resolved once here so that pricing never has to look at the type string again
+    private final AbstractPerformanceCalculator calculator;
 
+    /**
+     * Creates a play.
+     *
+     * @param name the play name
+     * @param type the play type
+     * @throws RuntimeException if the play type is not known
+     */
     public Play(String name, String type) {
+        this(name, type, AbstractPerformanceCalculator.createPerformanceCalculator(type));
+    }
+
+    Play(String name, String type, AbstractPerformanceCalculator calculator) {
         this.name = name;
         this.type = type;
+        this.calculator = calculator;
     }
 
     /**
@@ -33,4 +47,13 @@ public class Play {
     public String getType() {
         return type;
     }
+
+    /**
+     * Get the calculator for this play's type.
+     *
+     * @return the performance calculator
+     */
+    public AbstractPerformanceCalculator getCalculator() {
+        return calculator;
+    }
 }
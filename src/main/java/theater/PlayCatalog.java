@@ -0,0 +1,141 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable play catalog that gives every play id a dense int ordinal.
+ * Performances created through the catalog carry the ordinal of their play and the catalog's own
+ * copy of the play id, so looking their play up is an array index instead of a hash lookup.
+ */
+public final class PlayCatalog {
+
+    /**
+     * The ordinal of a play id that is not in a catalog.
+     */
+    public static final int UNKNOWN = -1;
+
+    private final String[] ids;
+    private final Play[] plays;
+    private final Map<String, Integer> ordinals;
+    private final Map<String, Play> playsById;
+
+    /**
+     * Creates a catalog of the given plays. Ordinals follow the sorted order of the play ids.
+     *
+     * @param plays plays keyed by play id
+     */
+    public PlayCatalog(Map<String, Play> plays) {
+        this.ids = plays.keySet().toArray(new String[0]);
+        Arrays.sort(ids);
+        this.plays = new Play[ids.length];
+        final Map<String, Integer> ordinalsById = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            this.plays[i] = plays.get(ids[i]);
+            ordinalsById.put(ids[i], i);
+        }
+        this.ordinals = ordinalsById;
+        this.playsById = Collections.unmodifiableMap(new HashMap<>(plays));
+    }
+
+    /**
+     * Get the number of plays in this catalog.
+     *
+     * @return the number of plays
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get the ordinal of a play id.
+     *
+     * @param playID the play id
+     * @return the ordinal, or {@link #UNKNOWN} if the play is not in this catalog
+     */
+    public int ordinalOf(String playID) {
+        final Integer result = ordinals.get(playID);
+        return result == null ? UNKNOWN : result;
+    }
+
+    /**
+     * Get the play id with the given ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the play id
+     */
+    public String idOf(int ordinal) {
+        return ids[ordinal];
+    }
+
+    /**
+     * Get the play with the given ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the play
+     */
+    public Play get(int ordinal) {
+        return plays[ordinal];
+    }
+
+    /**
+     * Get the play with the given id.
+     *
+     * @param playID the play id
+     * @return the play, or null if it is not in this catalog
+     */
+    public Play get(String playID) {
+        return playsById.get(playID);
+    }
+
+    /**
+     * Get the play of a performance, by ordinal if the performance was created through this catalog.
+     *
+     * @param performance the performance
+     * @return the play, or null if it is not in this catalog
+     */
+    public Play get(Performance performance) {
+        final int ordinal = performance.getPlayOrdinal();
+        final Play result;
+        // the id is compared by reference: only performances created by this catalog share its id strings,
+        // so an ordinal assigned by some other catalog is never trusted
+        if (ordinal >= 0 && ordinal < ids.length && ids[ordinal] == performance.getPlayID()) {
+            result = plays[ordinal];
+        }
+        else {
+            result = playsById.get(performance.getPlayID());
+        }
+        return result;
+    }
+
+    /**
+     * Creates a performance that carries the ordinal of its play and this catalog's copy of the play id.
+     * Unknown play ids give a plain performance.
+     *
+     * @param playID   the play id
+     * @param audience the audience size
+     * @return the performance
+     */
+    public Performance performance(String playID, int audience) {
+        final int ordinal = ordinalOf(playID);
+        final Performance result;
+        if (ordinal == UNKNOWN) {
+            result = new Performance(playID, audience);
+        }
+        else {
+            result = new Performance(ids[ordinal], audience, ordinal);
+        }
+        return result;
+    }
+
+    /**
+     * Get the plays of this catalog keyed by play id.
+     *
+     * @return an unmodifiable map of the plays
+     */
+    public Map<String, Play> asMap() {
+        return playsById;
+    }
+}
@@ -0,0 +1,72 @@
+package theater;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the play catalog from a JSON object shaped like {@code plays.json}.
+ */
+public final class PlayCatalogReader {
+
+    private PlayCatalogReader() {
+        // utility class
+    }
+
+    /**
+     * Reads a UTF-8 encoded play catalog file.
+     *
+     * @param path the file to read
+     * @return plays keyed by play id
+     * @throws IOException      if the file cannot be read or is not valid JSON
+     * @throws RuntimeException if one of the play types is not known
+     */
+    public static Map<String, Play> read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a play catalog. The reader is not closed.
+     *
+     * @param reader the JSON input
+     * @return plays keyed by play id
+     * @throws IOException      if the input cannot be read or is not valid JSON
+     * @throws RuntimeException if one of the play types is not known
+     */
+    public static Map<String, Play> read(Reader reader) throws IOException {
+        final JsonTokenizer tokenizer = new JsonTokenizer(reader);
+        final Map<String, Play> plays = new HashMap<>();
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            final String playID = tokenizer.nextName();
+            String name = null;
+            String type = null;
+            tokenizer.beginObject();
+            while (tokenizer.hasNext()) {
+                final String field = tokenizer.nextName();
+                if ("name".equals(field)) {
+                    name = tokenizer.nextString();
+                }
+                else if ("type".equals(field)) {
+                    type = tokenizer.nextString();
+                }
+                else {
+                    tokenizer.skipValue();
+                }
+            }
+            tokenizer.endObject();
+            if (name == null || type == null) {
+                throw new IOException(String.format("play %s needs both a name and a type", playID));
+            }
+            plays.put(playID, new Play(name, type));
+        }
+        tokenizer.endObject();
+        return plays;
+    }
+}
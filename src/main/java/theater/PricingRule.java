@@ -0,0 +1,58 @@
+package theater;
+
+/**
+ * The parameters of the pricing rule every built-in play type follows: a base amount, an amount per audience
+ * member, an amount per member over a threshold plus a flat step once over it, credits per member over a
+ * second threshold and a bonus credit for every so many members. A calculator exports its rule so that
+ * {@link BatchPricer} can evaluate it over many performances without calling the calculator for each.
+ */
+final class PricingRule {
+
+    private final int baseAmount;
+    private final int amountPerAudience;
+    private final int amountThreshold;
+    private final int amountOverThreshold;
+    private final int stepOverThreshold;
+    private final int creditThreshold;
+    // 0 when the type earns no bonus credits
+    private final int bonusCreditDivisor;
+
+    PricingRule(int baseAmount, int amountPerAudience, int amountThreshold, int amountOverThreshold,
+                int stepOverThreshold, int creditThreshold, int bonusCreditDivisor) {
+        this.baseAmount = baseAmount;
+        this.amountPerAudience = amountPerAudience;
+        this.amountThreshold = amountThreshold;
+        this.amountOverThreshold = amountOverThreshold;
+        this.stepOverThreshold = stepOverThreshold;
+        this.creditThreshold = creditThreshold;
+        this.bonusCreditDivisor = bonusCreditDivisor;
+    }
+
+    int getBaseAmount() {
+        return baseAmount;
+    }
+
+    int getAmountPerAudience() {
+        return amountPerAudience;
+    }
+
+    int getAmountThreshold() {
+        return amountThreshold;
+    }
+
+    int getAmountOverThreshold() {
+        return amountOverThreshold;
+    }
+
+    int getStepOverThreshold() {
+        return stepOverThreshold;
+    }
+
+    int getCreditThreshold() {
+        return creditThreshold;
+    }
+
+    int getBonusCreditDivisor() {
+        return bonusCreditDivisor;
+    }
+}
@@ -0,0 +1,80 @@
+package theater;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed amounts and volume credits for every play type and audience size up to a maximum.
+ * Plays priced through a table do an array lookup instead of evaluating the pricing rules;
+ * audiences above the maximum are still calculated from the rules.
+ */
+public final class PricingTable {
+
+    public static final int DEFAULT_MAX_AUDIENCE = 1000;
+
+    private static final String[] TYPES = {"tragedy", "comedy", "history", "pastoral"};
+    // built eagerly so that the first statement does not pay for it
+    private static final PricingTable DEFAULT = new PricingTable(DEFAULT_MAX_AUDIENCE);
+
+    private final Map<String, TabulatedCalculator> calculators = new HashMap<>();
+
+    /**
+     * Builds the tables for audiences from 0 to the given maximum.
+     *
+     * @param maxAudience the largest audience to precompute
+     */
+    public PricingTable(int maxAudience) {
+        if (maxAudience < 0) {
+            throw new IllegalArgumentException("maximum audience must not be negative");
+        }
+        for (String type : TYPES) {
+            calculators.put(type, new TabulatedCalculator(
+                    AbstractPerformanceCalculator.createPerformanceCalculator(type), maxAudience));
+        }
+    }
+
+    /**
+     * Get the table covering audiences up to {@link #DEFAULT_MAX_AUDIENCE}.
+     *
+     * @return the shared default table
+     */
+    public static PricingTable getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a copy of the given play catalog whose plays are priced through this table.
+     * Statements printed against the copy are identical to those printed against the original.
+     *
+     * @param plays plays keyed by play id
+     * @return the plays priced through this table, keyed by the same ids
+     */
+    public Map<String, Play> apply(Map<String, Play> plays) {
+        final Map<String, Play> result = new HashMap<>();
+        for (Map.Entry<String, Play> entry : plays.entrySet()) {
+            final Play play = entry.getValue();
+            result.put(entry.getKey(), new Play(play.getName(), play.getType(), calculatorFor(play)));
+        }
+        return result;
+    }
+
+    private AbstractPerformanceCalculator calculatorFor(Play play) {
+        AbstractPerformanceCalculator result = calculators.get(play.getType());
+        if (result == null) {
+            // not one of the tabulated types, so keep pricing it the usual way
+            result = play.getCalculator();
+        }
+        return result;
+    }
+
+    /**
+     * Checks every table entry against the pricing rules.
+     *
+     * @throws IllegalStateException if an entry differs from the calculated value
+     */
+    public void verify() {
+        for (Map.Entry<String, TabulatedCalculator> entry : calculators.entrySet()) {
+            entry.getValue().verify(entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package theater;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link StatementMetrics} listener that keeps a {@link LatencyHistogram} per stage and for whole
+ * statements, together with counters of statements, performances, characters and unknown play ids.
+ */
+public final class RecordingStatementMetrics implements StatementMetrics {
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final LatencyHistogram statementLatency = new LatencyHistogram();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder performances = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAdder unknownPlays = new LongAdder();
+
+    public RecordingStatementMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public void stageCompleted(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    @Override
+    public void statementCompleted(int performanceCount, long characterCount, long nanos) {
+        statementLatency.record(nanos);
+        statements.increment();
+        performances.add(performanceCount);
+        characters.add(characterCount);
+    }
+
+    @Override
+    public void unknownPlay(String playID) {
+        unknownPlays.increment();
+    }
+
+    /**
+     * Get the per-statement durations of a stage.
+     *
+     * @param stage the stage
+     * @return the histogram of durations in nanoseconds
+     */
+    public LatencyHistogram getStageLatency(Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Get the durations of whole statements.
+     *
+     * @return the histogram of durations in nanoseconds
+     */
+    public LatencyHistogram getStatementLatency() {
+        return statementLatency;
+    }
+
+    /**
+     * Get the number of statements written.
+     *
+     * @return the statement count
+     */
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    /**
+     * Get the number of performances on the statements written.
+     *
+     * @return the performance count
+     */
+    public long getPerformances() {
+        return performances.sum();
+    }
+
+    /**
+     * Get the number of characters written.
+     *
+     * @return the character count
+     */
+    public long getCharacters() {
+        return characters.sum();
+    }
+
+    /**
+     * Get the number of performances whose play id was not found.
+     *
+     * @return the unknown play id count
+     */
+    public long getUnknownPlays() {
+        return unknownPlays.sum();
+    }
+}
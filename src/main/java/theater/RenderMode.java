@@ -0,0 +1,17 @@
+package theater;
+
+/**
+ * Selects how a {@link StatementPrinter} renders its plain-text statement.
+ */
+public enum RenderMode {
+
+    /**
+     * The original path, formatting every line with {@code String.format}.
+     */
+    FORMAT,
+
+    /**
+     * The hand-rolled path, appending every line directly into a reusable buffer.
+     */
+    DIRECT
+}
@@ -0,0 +1,281 @@
+package theater;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Looks statements up by customer in an archive written by {@link StatementArchiveWriter}. The index and
+ * every segment are mapped into memory, and a statement is returned as a read-only slice of its segment,
+ * so nothing is copied or decoded.
+ *
+ * <pre>
+ * index = magic version entryCount segmentCount long(generation) entry* keyChar*
+ * entry = long(prefix) int(keyOffset) int(keyLength) int(segment) int(offset) int(length)
+ * </pre>
+ *
+ * <p>Every writer stores its segments under a new generation number, named in the index, so an archive
+ * that is already open keeps reading the segments of its own generation while the archive is rewritten.</p>
+ *
+ * <p>Entries are sorted by customer. The prefix packs the first four chars of the customer, so a binary
+ * search only reads the fixed-size entries and looks at the customer's chars, stored as UTF-16 after the
+ * entries, only to break a tie. A lookup allocates nothing but the returned slice.</p>
+ */
+public final class StatementArchive {
+
+    static final int MAGIC = 0x54485341;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+    static final int ENTRY_SIZE = Long.BYTES + 5 * Integer.BYTES;
+    static final String INDEX_NAME = "statements.idx";
+
+    static final String SEGMENT_GLOB = "statements-*.dat";
+
+    private static final String SEGMENT_FORMAT = "statements-%d-%05d.dat";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("statements-(\\d+)-\\d+\\.dat");
+    private static final int GENERATION = 4 * Integer.BYTES;
+    // how often open() starts over when the archive is replaced while it is being opened
+    private static final int OPEN_ATTEMPTS = 3;
+    private static final int PREFIX_CHARS = Long.BYTES / Character.BYTES;
+    private static final int KEY_OFFSET = Long.BYTES;
+    private static final int KEY_LENGTH = KEY_OFFSET + Integer.BYTES;
+    private static final int SEGMENT = KEY_LENGTH + Integer.BYTES;
+    private static final int OFFSET = SEGMENT + Integer.BYTES;
+    private static final int LENGTH = OFFSET + Integer.BYTES;
+
+    private final ByteBuffer index;
+    private final ByteBuffer[] segments;
+    private final int size;
+    private final int keysStart;
+
+    private StatementArchive(ByteBuffer index, ByteBuffer[] segments, int size) {
+        this.index = index;
+        this.segments = segments;
+        this.size = size;
+        this.keysStart = HEADER_SIZE + size * ENTRY_SIZE;
+    }
+
+    /**
+     * Maps the archive in the given directory into memory. The returned archive keeps reading the same
+     * statements when a writer replaces the archive in the directory afterwards.
+     *
+     * @param directory the archive directory
+     * @return the archive
+     * @throws IOException if the archive cannot be mapped or its index is damaged
+     */
+    public static StatementArchive open(Path directory) throws IOException {
+        StatementArchive result = null;
+        for (int attempt = 1; result == null; attempt++) {
+            final ByteBuffer index = map(directory.resolve(INDEX_NAME));
+            try {
+                result = open(directory, index);
+            }
+            catch (NoSuchFileException exception) {
+                // a writer replaced the archive and deleted the segments this index names
+                if (attempt == OPEN_ATTEMPTS) {
+                    throw exception;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static StatementArchive open(Path directory, ByteBuffer index) throws IOException {
+        if (index.limit() < HEADER_SIZE || index.getInt(0) != MAGIC || index.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException(String.format("%s is not a statement archive index", directory));
+        }
+        final int size = index.getInt(2 * Integer.BYTES);
+        final int segmentCount = index.getInt(3 * Integer.BYTES);
+        final long generation = index.getLong(GENERATION);
+        if (size < 0 || segmentCount < 0 || generation < 0
+                || (long) size * ENTRY_SIZE > index.limit() - HEADER_SIZE) {
+            throw new IOException(String.format("the index of %s is damaged", directory));
+        }
+        final ByteBuffer[] segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = map(segmentPath(directory, generation, i));
+        }
+        return new StatementArchive(index, segments, size);
+    }
+
+    /**
+     * Get the number of statements in the archive.
+     *
+     * @return the number of statements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the statement of the given customer added last.
+     *
+     * @param customer the customer
+     * @return the UTF-8 statement as a read-only slice of the archive, or null if the customer has none
+     */
+    public ByteBuffer get(String customer) {
+        final int entry = upperBound(customer) - 1;
+        ByteBuffer result = null;
+        if (entry >= 0 && compare(entry, customer, prefix(customer)) == 0) {
+            result = statement(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Returns every statement of the given customer.
+     *
+     * @param customer the customer
+     * @return the UTF-8 statements as read-only slices of the archive, in the order they were added
+     */
+    public List<ByteBuffer> getAll(String customer) {
+        final long prefix = prefix(customer);
+        final List<ByteBuffer> result = new ArrayList<>();
+        for (int entry = lowerBound(customer); entry < size && compare(entry, customer, prefix) == 0; entry++) {
+            result.add(statement(entry));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the statement of the given customer added last, decoded.
+     *
+     * @param customer the customer
+     * @return the statement, or null if the customer has none
+     */
+    public String getText(String customer) {
+        final ByteBuffer statement = get(customer);
+        String result = null;
+        if (statement != null) {
+            result = StandardCharsets.UTF_8.decode(statement).toString();
+        }
+        return result;
+    }
+
+    static Path segmentPath(Path directory, long generation, int segment) {
+        return directory.resolve(String.format(SEGMENT_FORMAT, generation, segment));
+    }
+
+    /**
+     * Returns the generation of a segment file.
+     *
+     * @param path the segment file
+     * @return the generation, or -1 if the file is not named like a segment
+     */
+    static long generationOf(Path path) {
+        final Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        long result = -1;
+        if (matcher.matches()) {
+            try {
+                result = Long.parseLong(matcher.group(1));
+            }
+            catch (NumberFormatException exception) {
+                // too many digits for a generation this class wrote
+                result = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Packs the first chars of a customer into a long that orders like the customer, as far as it goes.
+     *
+     * @param customer the customer
+     * @return the prefix, padded with zero chars
+     */
+    static long prefix(String customer) {
+        long result = 0;
+        for (int i = 0; i < PREFIX_CHARS; i++) {
+            result <<= Character.SIZE;
+            if (i < customer.length()) {
+                result |= customer.charAt(i);
+            }
+        }
+        return result;
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large to map", path));
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private ByteBuffer statement(int entry) {
+        final int position = HEADER_SIZE + entry * ENTRY_SIZE;
+        final int offset = index.getInt(position + OFFSET);
+        final ByteBuffer view = segments[index.getInt(position + SEGMENT)].duplicate();
+        view.limit(offset + index.getInt(position + LENGTH)).position(offset);
+        // read-only like the mapping it slices
+        return view.slice();
+    }
+
+    /**
+     * Finds the first entry whose customer is not less than the given one.
+     */
+    private int lowerBound(String customer) {
+        final long prefix = prefix(customer);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (compare(middle, customer, prefix) < 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first entry whose customer is greater than the given one.
+     */
+    private int upperBound(String customer) {
+        final long prefix = prefix(customer);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (compare(middle, customer, prefix) <= 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the customer of an entry with the given one, in {@link String#compareTo} order.
+     */
+    private int compare(int entry, String customer, long prefix) {
+        final int position = HEADER_SIZE + entry * ENTRY_SIZE;
+        int result = Long.compareUnsigned(index.getLong(position), prefix);
+        if (result == 0) {
+            final int keyStart = keysStart + index.getInt(position + KEY_OFFSET) * Character.BYTES;
+            final int keyLength = index.getInt(position + KEY_LENGTH);
+            final int common = Math.min(keyLength, customer.length());
+            for (int i = PREFIX_CHARS; result == 0 && i < common; i++) {
+                result = Character.compare(index.getChar(keyStart + i * Character.BYTES), customer.charAt(i));
+            }
+            if (result == 0) {
+                result = Integer.compare(keyLength, customer.length());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,265 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packs rendered statements into segment files and writes the customer index read by
+ * {@link StatementArchive} when closed. Statements are stored as UTF-8, one after another; a new
+ * segment file is started when the current one would outgrow the size limit, so every segment can be
+ * mapped into memory as a whole.
+ *
+ * <p>An archive already in the directory is never written over: the new segments belong to the next
+ * generation, and the segments of earlier generations are only deleted once the new index has been
+ * moved into place, so readers that opened the old archive are not affected.</p>
+ */
+public final class StatementArchiveWriter implements Closeable {
+
+    /**
+     * The default size at which a new segment file is started.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 30;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int INITIAL_ENTRIES = 1024;
+
+    private final Path directory;
+    private final int maxSegmentBytes;
+    private final long generation;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+    // the index, in the order statements were added
+    private final List<String> customers = new ArrayList<>();
+    private int[] segments = new int[INITIAL_ENTRIES];
+    private int[] offsets = new int[INITIAL_ENTRIES];
+    private int[] lengths = new int[INITIAL_ENTRIES];
+
+    private FileChannel channel;
+    private int segment = -1;
+    private int segmentBytes;
+    private boolean closed;
+
+    /**
+     * Creates an archive with {@link #DEFAULT_SEGMENT_BYTES} segments.
+     *
+     * @param directory the archive directory, created if it does not exist; an archive in it is replaced
+     *                  once this one is closed
+     * @throws IOException if the directory cannot be created
+     */
+    public StatementArchiveWriter(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Creates an archive.
+     *
+     * @param directory       the archive directory, created if it does not exist; an archive in it is replaced
+     *                        once this one is closed
+     * @param maxSegmentBytes the size at which a new segment file is started
+     * @throws IOException if the directory cannot be created or read
+     */
+    public StatementArchiveWriter(Path directory, int maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes < 1) {
+            throw new IllegalArgumentException("segment size must be positive");
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(directory);
+        // newer than any segment in the directory, including those of a writer that never finished
+        long newest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, StatementArchive.SEGMENT_GLOB)) {
+            for (Path file : files) {
+                newest = Math.max(newest, StatementArchive.generationOf(file));
+            }
+        }
+        this.generation = newest + 1;
+    }
+
+    /**
+     * Adds the statement of a customer. A customer may have several statements, which are kept in the
+     * order they were added.
+     *
+     * @param customer  the customer the statement is looked up by
+     * @param statement the rendered statement
+     * @throws IOException if the statement cannot be written
+     */
+    public void add(String customer, CharSequence statement) throws IOException {
+        if (closed) {
+            throw new IOException("the archive is closed");
+        }
+        final byte[] bytes = statement.toString().getBytes(StandardCharsets.UTF_8);
+        // a statement larger than a whole segment gets one of its own
+        if (channel == null || segmentBytes > 0 && bytes.length > maxSegmentBytes - segmentBytes) {
+            startSegment();
+        }
+        final int entry = customers.size();
+        if (entry == offsets.length) {
+            segments = Arrays.copyOf(segments, entry * 2);
+            offsets = Arrays.copyOf(offsets, entry * 2);
+            lengths = Arrays.copyOf(lengths, entry * 2);
+        }
+        customers.add(customer);
+        segments[entry] = segment;
+        offsets[entry] = segmentBytes;
+        lengths[entry] = bytes.length;
+        write(bytes);
+        segmentBytes += bytes.length;
+    }
+
+    /**
+     * Writes out the last segment and the index, replacing any index that was there, forces the directory
+     * to disk, then deletes the segments of earlier archives. The archive can only be read once this
+     * returned.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            finishSegment();
+            writeIndex();
+            deleteEarlierGenerations();
+        }
+    }
+
+    private void startSegment() throws IOException {
+        finishSegment();
+        segment++;
+        channel = FileChannel.open(StatementArchive.segmentPath(directory, generation, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentBytes = 0;
+    }
+
+    private void finishSegment() throws IOException {
+        if (channel != null) {
+            try {
+                flushWriteBuffer();
+                channel.force(false);
+            }
+            finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (writeBuffer.remaining() < bytes.length) {
+            flushWriteBuffer();
+        }
+        if (writeBuffer.remaining() < bytes.length) {
+            writeFully(ByteBuffer.wrap(bytes));
+        }
+        else {
+            writeBuffer.put(bytes);
+        }
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * Sorts the entries by customer, keeping the order of each customer's statements, and writes the index
+     * next to the segments before moving it into place, so that readers never see half an index.
+     */
+    private void writeIndex() throws IOException {
+        final Integer[] order = new Integer[customers.size()];
+        long keyChars = 0;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            keyChars += customers.get(i).length();
+        }
+        // stable, so statements of the same customer stay in the order they were added
+        Arrays.sort(order, (left, right) -> customers.get(left).compareTo(customers.get(right)));
+
+        final long size = StatementArchive.HEADER_SIZE + (long) order.length * StatementArchive.ENTRY_SIZE
+                + keyChars * Character.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("the archive index is too large");
+        }
+        final ByteBuffer index = ByteBuffer.allocate((int) size);
+        index.putInt(StatementArchive.MAGIC).putInt(StatementArchive.VERSION).putInt(order.length)
+                .putInt(segment + 1).putLong(generation);
+        int keyOffset = 0;
+        for (Integer entry : order) {
+            final String customer = customers.get(entry);
+            index.putLong(StatementArchive.prefix(customer)).putInt(keyOffset).putInt(customer.length())
+                    .putInt(segments[entry]).putInt(offsets[entry]).putInt(lengths[entry]);
+            keyOffset += customer.length();
+        }
+        for (Integer entry : order) {
+            final String customer = customers.get(entry);
+            for (int i = 0; i < customer.length(); i++) {
+                index.putChar(customer.charAt(i));
+            }
+        }
+        index.flip();
+
+        final Path temporary = directory.resolve(StatementArchive.INDEX_NAME + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (index.hasRemaining()) {
+                out.write(index);
+            }
+            out.force(false);
+        }
+        Files.move(temporary, directory.resolve(StatementArchive.INDEX_NAME),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // the new segment names and the move are only durable once the directory is
+        syncDirectory();
+    }
+
+    /**
+     * Forces the directory entries to disk. Not every platform can open a directory, in which case the
+     * file system is trusted to keep them.
+     */
+    private void syncDirectory() {
+        try (FileChannel handle = FileChannel.open(directory, StandardOpenOption.READ)) {
+            handle.force(true);
+        }
+        catch (IOException exception) {
+            // directories cannot be synced here
+        }
+    }
+
+    /**
+     * Deletes the segments of earlier generations. Those of later ones belong to a writer that started
+     * after this one and may still be writing. A segment that cannot be deleted, e.g. because it is
+     * still mapped on a platform that does not allow that, is left for the next writer to delete.
+     */
+    private void deleteEarlierGenerations() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, StatementArchive.SEGMENT_GLOB)) {
+            for (Path file : files) {
+                final long other = StatementArchive.generationOf(file);
+                if (other >= 0 && other < generation) {
+                    try {
+                        Files.deleteIfExists(file);
+                    }
+                    catch (IOException exception) {
+                        // still in use; the archive is complete without it
+                    }
+                }
+            }
+        }
+    }
+}
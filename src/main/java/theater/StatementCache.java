@@ -0,0 +1,303 @@
+package theater;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A thread-safe cache of plain-text statements, addressed by the content of the invoice rather than
+ * by the invoice object. Entries are evicted least recently used first once either the entry or the
+ * byte bound is exceeded. Every entry keeps the plays its statement was priced with; when the cache was
+ * created with a mutable map, a hit looks the plays of its performances up again and drops the statement
+ * if any of them was replaced.
+ */
+public final class StatementCache {
+
+    // 64-bit FNV-1a parameters and the murmur3 finaliser, used for stable, well-mixed invoice hashes
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_2 = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+    // rough per-entry overhead of the map node, entry and arrays
+    private static final long ENTRY_OVERHEAD = 96;
+    // the audience, and references to the play id and the play
+    private static final long BYTES_PER_PERFORMANCE = Integer.BYTES + 2 * Long.BYTES;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Map<String, Play> plays;
+    private final PlayCatalog catalog;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates a cache of statements rendered against a mutable map of plays.
+     *
+     * @param plays      the plays; replacing a play invalidates the statements priced with it. The map is only
+     *                   read, never iterated, so it must be safe to read while it changes if plays are
+     *                   replaced during use, e.g. a {@link java.util.concurrent.ConcurrentHashMap}
+     * @param maxEntries the maximum number of statements kept
+     * @param maxBytes   the maximum estimated size of the statements kept
+     */
+    public StatementCache(Map<String, Play> plays, int maxEntries, long maxBytes) {
+        this(plays, null, maxEntries, maxBytes);
+    }
+
+    /**
+     * Creates a cache of statements rendered against a play catalog.
+     *
+     * @param catalog    the play catalog
+     * @param maxEntries the maximum number of statements kept
+     * @param maxBytes   the maximum estimated size of the statements kept
+     */
+    public StatementCache(PlayCatalog catalog, int maxEntries, long maxBytes) {
+        this(catalog.asMap(), catalog, maxEntries, maxBytes);
+    }
+
+    private StatementCache(Map<String, Play> plays, PlayCatalog catalog, int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("cache bounds must be positive");
+        }
+        this.plays = plays;
+        this.catalog = catalog;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the statement of an invoice, rendering it only if an invoice with the same content
+     * has not been rendered against the same plays.
+     *
+     * @param invoice the invoice
+     * @return the formatted statement
+     */
+    public String statement(Invoice invoice) {
+        final long key = hash(invoice);
+        // a catalog is immutable, but a play in a map may be replaced; looked up outside the lock, and before
+        // rendering, so a play replaced meanwhile can only make the entry look stale
+        final Play[] currentPlays = catalog == null ? playsOf(invoice) : null;
+        String result = lookup(key, invoice, currentPlays);
+        if (result == null) {
+            final StatementPrinter printer;
+            if (catalog == null) {
+                printer = new StatementPrinter(invoice, plays);
+            }
+            else {
+                printer = new StatementPrinter(invoice, catalog);
+            }
+            result = printer.statement();
+            store(key, new Entry(invoice, currentPlays, result));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached statement of the invoice, or null if there is none or the plays it was priced with
+     * are not the current ones.
+     */
+    private synchronized String lookup(long key, Invoice invoice, Play[] currentPlays) {
+        final Entry entry = entries.get(key);
+        String result = null;
+        if (entry != null && entry.matches(invoice)) {
+            if (currentPlays != null && !entry.renderedWith(currentPlays)) {
+                entries.remove(key);
+                bytes -= entry.bytes;
+                invalidations++;
+            }
+            else {
+                result = entry.statement;
+            }
+        }
+        if (result == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return result;
+    }
+
+    private Play[] playsOf(Invoice invoice) {
+        final List<Performance> performances = invoice.getPerformances();
+        final Play[] result = new Play[performances.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = plays.get(performances.get(i).getPlayID());
+        }
+        return result;
+    }
+
+    private synchronized void store(long key, Entry entry) {
+        if (entry.bytes <= maxBytes) {
+            final Entry replaced = entries.put(key, entry);
+            if (replaced != null) {
+                bytes -= replaced.bytes;
+            }
+            bytes += entry.bytes;
+            final Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                bytes -= eldest.next().bytes;
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Drops every cached statement.
+     */
+    public synchronized void invalidateAll() {
+        clear();
+    }
+
+    private void clear() {
+        if (!entries.isEmpty()) {
+            invalidations++;
+        }
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Get the number of cached statements.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the estimated size of the cached statements.
+     *
+     * @return the estimated size in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that had to render the statement.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of statements evicted to stay within the bounds.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of statements dropped because one of their plays was replaced, plus the number of
+     * times the cache was emptied on request.
+     *
+     * @return the invalidation count
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    private static long hash(Invoice invoice) {
+        long result = mix(FNV_OFFSET, invoice.getCustomer());
+        for (Performance performance : invoice.getPerformances()) {
+            result = mix(mix(result, performance.getPlayID()), performance.getAudience());
+        }
+        return finish(result);
+    }
+
+    private static long mix(long hash, String value) {
+        final long result;
+        if (value == null) {
+            result = mix(hash, 0);
+        }
+        else {
+            result = mix(mix(hash, value.length()), value.hashCode());
+        }
+        return result;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    private static long finish(long hash) {
+        long result = hash ^ hash >>> MIX_SHIFT;
+        result *= MIX_1;
+        result ^= result >>> MIX_SHIFT;
+        result *= MIX_2;
+        return result ^ result >>> MIX_SHIFT;
+    }
+
+    /**
+     * A cached statement with the invoice content it was rendered from, compared on every hit
+     * so that a hash collision can never return another customer's statement.
+     */
+    private static final class Entry {
+        private final String customer;
+        private final String[] playIDs;
+        private final int[] audiences;
+        // null in a cache over a catalog, whose plays are never replaced
+        private final Play[] plays;
+        private final String statement;
+        private final long bytes;
+
+        Entry(Invoice invoice, Play[] plays, String statement) {
+            final List<Performance> performances = invoice.getPerformances();
+            this.customer = invoice.getCustomer();
+            this.playIDs = new String[performances.size()];
+            this.audiences = new int[performances.size()];
+            for (int i = 0; i < playIDs.length; i++) {
+                playIDs[i] = performances.get(i).getPlayID();
+                audiences[i] = performances.get(i).getAudience();
+            }
+            this.plays = plays;
+            this.statement = statement;
+            this.bytes = ENTRY_OVERHEAD + (long) Character.BYTES * statement.length()
+                    + BYTES_PER_PERFORMANCE * playIDs.length;
+        }
+
+        boolean matches(Invoice invoice) {
+            final List<Performance> performances = invoice.getPerformances();
+            boolean result = Objects.equals(customer, invoice.getCustomer())
+                    && performances.size() == playIDs.length;
+            for (int i = 0; result && i < playIDs.length; i++) {
+                final Performance performance = performances.get(i);
+                result = audiences[i] == performance.getAudience()
+                        && Objects.equals(playIDs[i], performance.getPlayID());
+            }
+            return result;
+        }
+
+        boolean renderedWith(Play[] currentPlays) {
+            boolean result = true;
+            for (int i = 0; result && i < plays.length; i++) {
+                result = plays[i] == currentPlays[i];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The priced contents of a statement, computed once and rendered by any number of printers.
+ * Per-performance values are kept in parallel primitive arrays rather than one object per
+ * performance, so a statement of n performances is a handful of arrays of length n.
+ * Printers only build one when asked to with {@link StatementPrinter#createStatementData()}; their own
+ * statements are priced and written in a single pass without it.
+ */
+public final class StatementData {
+
+    private final String customer;
+    private final String[] playNames;
+    private final int[] audiences;
+    private final int[] amounts;
+    private final int[] credits;
+    private final long totalAmount;
+    private final long totalVolumeCredits;
+
+    /**
+     * Prices every performance of the printer's invoice, reporting the time spent on looking plays up,
+     * pricing and crediting to the printer's metrics listener.
+     *
+     * @param printer the printer holding the invoice and plays
+     * @throws ArithmeticException      if a total does not fit in a long
+     * @throws IllegalArgumentException if a performance is of a play the printer does not know
+     */
+    StatementData(StatementPrinter printer) {
+        final InvoicePricedEvent event = new InvoicePricedEvent();
+        event.begin();
+        final Columns columns = new Columns(printer.getInvoice().getPerformances().size());
+        try {
+            printer.price(columns);
+        }
+        catch (IOException exception) {
+            // filling arrays never fails
+            throw new UncheckedIOException(exception);
+        }
+        this.customer = columns.customer;
+        this.playNames = columns.playNames;
+        this.audiences = columns.audiences;
+        this.amounts = columns.amounts;
+        this.credits = columns.credits;
+        this.totalAmount = columns.totalAmount;
+        this.totalVolumeCredits = columns.totalVolumeCredits;
+        if (event.shouldCommit()) {
+            event.customer = customer;
+            event.performances = playNames.length;
+            event.totalAmount = totalAmount;
+            event.totalVolumeCredits = totalVolumeCredits;
+            event.commit();
+        }
+    }
+
+    /**
+     * Hands the priced statement to the given sink, in the order the invoice was priced.
+     *
+     * @param sink the sink
+     * @return what the sink returned for the totals
+     * @throws IOException if the sink cannot write the statement
+     */
+    long writeTo(StatementSink sink) throws IOException {
+        sink.customer(customer);
+        for (int i = 0; i < playNames.length; i++) {
+            sink.performance(playNames[i], audiences[i], amounts[i], credits[i]);
+        }
+        return sink.totals(totalAmount, totalVolumeCredits);
+    }
+
+    /**
+     * Get the customer of the statement.
+     *
+     * @return the customer
+     */
+    public String getCustomer() {
+        return customer;
+    }
+
+    /**
+     * Get the number of performances on the statement.
+     *
+     * @return the number of performances
+     */
+    public int size() {
+        return playNames.length;
+    }
+
+    /**
+     * Get the name of the play of a performance.
+     *
+     * @param index the position of the performance on the invoice
+     * @return the play name
+     */
+    public String getPlayName(int index) {
+        return playNames[index];
+    }
+
+    /**
+     * Get the audience size of a performance.
+     *
+     * @param index the position of the performance on the invoice
+     * @return number of audience members
+     */
+    public int getAudience(int index) {
+        return audiences[index];
+    }
+
+    /**
+     * Get the amount charged for a performance.
+     *
+     * @param index the position of the performance on the invoice
+     * @return amount in cents
+     */
+    public int getAmount(int index) {
+        return amounts[index];
+    }
+
+    /**
+     * Get the volume credits earned by a performance.
+     *
+     * @param index the position of the performance on the invoice
+     * @return credits value
+     */
+    public int getVolumeCredits(int index) {
+        return credits[index];
+    }
+
+    /**
+     * Get the total amount of the statement.
+     *
+     * @return total amount in cents
+     */
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    /**
+     * Get the total volume credits of the statement.
+     *
+     * @return credits total
+     */
+    public long getTotalVolumeCredits() {
+        return totalVolumeCredits;
+    }
+
+    /**
+     * Collects the priced performances into the columns of a {@link StatementData}.
+     */
+    private static final class Columns implements StatementSink {
+
+        private final String[] playNames;
+        private final int[] audiences;
+        private final int[] amounts;
+        private final int[] credits;
+        private String customer;
+        private int size;
+        private long totalAmount;
+        private long totalVolumeCredits;
+
+        Columns(int capacity) {
+            this.playNames = new String[capacity];
+            this.audiences = new int[capacity];
+            this.amounts = new int[capacity];
+            this.credits = new int[capacity];
+        }
+
+        @Override
+        public void customer(String name) {
+            this.customer = name;
+        }
+
+        @Override
+        public void performance(String playName, int audience, int amount, int volumeCredits) {
+            playNames[size] = playName;
+            audiences[size] = audience;
+            amounts[size] = amount;
+            credits[size] = volumeCredits;
+            size++;
+        }
+
+        @Override
+        public long totals(long amount, long volumeCredits) {
+            this.totalAmount = amount;
+            this.totalVolumeCredits = volumeCredits;
+            return 0;
+        }
+    }
+}
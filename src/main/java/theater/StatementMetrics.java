@@ -0,0 +1,64 @@
+package theater;
+
+/**
+ * Receives measurements of statement generation. Pass one to the constructor of a printer; while a
+ * printer has the {@link #NOOP} listener, it does not read the clock at all. Every statement a printer
+ * writes is measured, in plain text or HTML, and so is pricing with
+ * {@link StatementPrinter#createStatementData()}. A listener may be shared by printers on many threads,
+ * so implementations must be thread-safe.
+ */
+public interface StatementMetrics {
+
+    /**
+     * The listener installed by default, which ignores every measurement.
+     */
+    StatementMetrics NOOP = new StatementMetrics() {
+    };
+
+    /**
+     * The stages of generating a statement.
+     */
+    enum Stage {
+        /** Looking up the play of each performance. */
+        PLAY_LOOKUP,
+        /** Calculating the amount of each performance. */
+        PRICING,
+        /** Calculating the volume credits of each performance. */
+        CREDITS,
+        /** Writing the text of the statement. */
+        FORMATTING
+    }
+
+    /**
+     * Called once per stage for every statement, with the time the stage took summed over all performances.
+     * A statement rendered from already priced data only reports {@link Stage#FORMATTING}.
+     *
+     * @param stage the stage
+     * @param nanos the duration in nanoseconds
+     */
+    default void stageCompleted(Stage stage, long nanos) {
+        // ignored by default
+    }
+
+    /**
+     * Called after a statement has been written.
+     *
+     * @param performances the number of performances on the statement
+     * @param characters   the number of characters written, or of bytes when encoded straight to a stream
+     * @param nanos        the time the whole statement took in nanoseconds, including pricing it
+     */
+    default void statementCompleted(int performances, long characters, long nanos) {
+        // ignored by default
+    }
+
+    /**
+     * Called when a performance refers to a play id that is not in the catalog, just before pricing fails
+     * with an {@link IllegalArgumentException}. There is no call for an unknown play type: a {@link Play}
+     * with one cannot be created, so it never reaches a printer.
+     *
+     * @param playID the play id that was not found
+     */
+    default void unknownPlay(String playID) {
+        // ignored by default
+    }
+}
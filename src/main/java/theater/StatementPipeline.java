@@ -0,0 +1,130 @@
+package theater;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Turns a stream of invoices into a stream of statements with backpressure: invoice source, pricing
+ * stage, rendering stage, subscriber. Each stage prices or renders a bounded number of invoices at a
+ * time on the executor and holds at most the buffer size of them, and invoices are only requested from
+ * the source as the subscriber takes statements. A subscriber slower than the source, e.g. one writing
+ * to disk, therefore keeps at most two buffers of invoices in memory, however long the stream is.
+ *
+ * <p>Statements are published in input order. An invoice that cannot be priced or rendered is
+ * published as a failed {@link StatementResult} without stopping the stream.</p>
+ */
+public final class StatementPipeline {
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final PlayCatalog catalog;
+    private final Executor executor;
+    private final int bufferSize;
+    private final int pricingParallelism;
+    private final int renderingParallelism;
+
+    /**
+     * Creates a pipeline running both stages on the common fork/join pool, using every worker of it.
+     *
+     * @param catalog the play catalog shared by all invoices
+     */
+    public StatementPipeline(PlayCatalog catalog) {
+        this(catalog, ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE,
+                ForkJoinPool.getCommonPoolParallelism(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Creates a pipeline running both stages on the given executor.
+     *
+     * @param catalog              the play catalog shared by all invoices
+     * @param executor             the executor to price and render on
+     * @param bufferSize           the most invoices held by each stage at a time
+     * @param pricingParallelism   the most invoices priced at a time
+     * @param renderingParallelism the most statements rendered at a time
+     */
+    public StatementPipeline(PlayCatalog catalog, Executor executor, int bufferSize,
+                             int pricingParallelism, int renderingParallelism) {
+        if (bufferSize < 1 || pricingParallelism < 1 || renderingParallelism < 1) {
+            throw new IllegalArgumentException("buffer size and parallelism must be positive");
+        }
+        this.catalog = catalog;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.pricingParallelism = pricingParallelism;
+        this.renderingParallelism = renderingParallelism;
+    }
+
+    /**
+     * Connects the given source to a new pricing and rendering stage. Nothing is requested from the
+     * source beyond the first buffer until the returned publisher has a subscriber asking for statements.
+     * Pushing sources can use a {@link java.util.concurrent.SubmissionPublisher}, whose {@code submit}
+     * blocks the producer once its own buffer is full.
+     *
+     * @param source the invoices
+     * @return the statements, one result per invoice in input order; it accepts a single subscriber
+     */
+    public Flow.Publisher<StatementResult> process(Flow.Publisher<Invoice> source) {
+        final OrderedStage<Invoice, Priced> pricing =
+                new OrderedStage<>(this::price, executor, pricingParallelism, bufferSize);
+        final OrderedStage<Priced, StatementResult> rendering =
+                new OrderedStage<>(this::render, executor, renderingParallelism, bufferSize);
+        pricing.subscribe(rendering);
+        source.subscribe(pricing);
+        return rendering;
+    }
+
+    /**
+     * Returns a publisher of the items of the given iterable that reads each one only when a subscriber
+     * asks for it, on the requesting thread.
+     *
+     * @param invoices the invoices, e.g. a {@link CompactInvoiceReader}
+     * @return a publisher of the invoices
+     */
+    public static Flow.Publisher<Invoice> fromIterable(Iterable<Invoice> invoices) {
+        return new IterablePublisher<>(invoices);
+    }
+
+    private Priced price(Invoice invoice) {
+        Priced result;
+        try {
+            result = new Priced(invoice, new StatementPrinter(invoice, catalog).createStatementData(), null);
+        }
+        catch (RuntimeException exception) {
+            result = new Priced(invoice, null, exception);
+        }
+        return result;
+    }
+
+    private StatementResult render(Priced priced) {
+        StatementResult result;
+        if (priced.failure == null) {
+            try {
+                result = StatementResult.success(priced.invoice,
+                        new StatementPrinter(priced.invoice, catalog).render(priced.data));
+            }
+            catch (RuntimeException exception) {
+                result = StatementResult.failure(priced.invoice, exception);
+            }
+        }
+        else {
+            result = StatementResult.failure(priced.invoice, priced.failure);
+        }
+        return result;
+    }
+
+    /**
+     * An invoice passed from the pricing to the rendering stage, with its prices or the reason it has none.
+     */
+    private static final class Priced {
+        private final Invoice invoice;
+        private final StatementData data;
+        private final RuntimeException failure;
+
+        Priced(Invoice invoice, StatementData data, RuntimeException failure) {
+            this.invoice = invoice;
+            this.data = data;
+            this.failure = failure;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package theater;
 
-import java.text.NumberFormat;
-import java.util.Locale;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Map;
 
 /**
@@ -9,13 +13,92 @@ import java.util.Map;
  * (Original comment retained)
  */
 public class StatementPrinter {
+    // rough size of one statement line, used to presize the result of statement()
+    private static final int ESTIMATED_LINE_LENGTH = 40;
+    // one reusable staging buffer per thread for streaming the direct path
+    private static final ThreadLocal<StatementRenderer> RENDERERS =
+            ThreadLocal.withInitial(StatementRenderer::new);
+
     // invoice and plays should not change once initialized → use private final
     private final Invoice invoice;
     private final Map<String, Play> plays;
+    // null when the plays were given as a map; otherwise used to look plays up by ordinal
+    private final PlayCatalog catalog;
+    private final RenderMode renderMode;
+    private final CurrencyFormatter currencyFormatter;
+    private final StatementMetrics metrics;
 
     public StatementPrinter(Invoice invoice, Map<String, Play> plays) {
+        this(invoice, plays, RenderMode.DIRECT);
+    }
+
+    public StatementPrinter(Invoice invoice, Map<String, Play> plays, RenderMode renderMode) {
+        this(invoice, plays, renderMode, StatementMetrics.NOOP);
+    }
+
+    /**
+     * Creates a printer that reports how long its statements take to the given listener.
+     *
+     * @param invoice    the invoice
+     * @param plays      plays keyed by play id
+     * @param renderMode how plain-text statements are written
+     * @param metrics    the listener, or null for {@link StatementMetrics#NOOP}
+     */
+    public StatementPrinter(Invoice invoice, Map<String, Play> plays, RenderMode renderMode,
+                            StatementMetrics metrics) {
+        this(invoice, plays, null, renderMode, CurrencyFormatter.USD, metrics);
+    }
+
+    public StatementPrinter(Invoice invoice, PlayCatalog catalog) {
+        this(invoice, catalog, RenderMode.DIRECT);
+    }
+
+    public StatementPrinter(Invoice invoice, PlayCatalog catalog, RenderMode renderMode) {
+        this(invoice, catalog, renderMode, CurrencyFormatter.USD);
+    }
+
+    public StatementPrinter(Invoice invoice, PlayCatalog catalog, RenderMode renderMode,
+                            CurrencyFormatter currencyFormatter) {
+        this(invoice, catalog, renderMode, currencyFormatter, StatementMetrics.NOOP);
+    }
+
+    /**
+     * Creates a printer that reports how long its statements take to the given listener.
+     *
+     * @param invoice           the invoice
+     * @param catalog           the play catalog
+     * @param renderMode        how plain-text statements are written
+     * @param currencyFormatter the formatter for amounts
+     * @param metrics           the listener, or null for {@link StatementMetrics#NOOP}
+     */
+    public StatementPrinter(Invoice invoice, PlayCatalog catalog, RenderMode renderMode,
+                            CurrencyFormatter currencyFormatter, StatementMetrics metrics) {
+        this(invoice, catalog.asMap(), catalog, renderMode, currencyFormatter, metrics);
+    }
+
+    private StatementPrinter(Invoice invoice, Map<String, Play> plays, PlayCatalog catalog,
+                             RenderMode renderMode, CurrencyFormatter currencyFormatter,
+                             StatementMetrics metrics) {
         this.invoice = invoice;
         this.plays = plays;
+        this.catalog = catalog;
+        this.renderMode = renderMode;
+        this.currencyFormatter = currencyFormatter;
+        if (metrics == null) {
+            this.metrics = StatementMetrics.NOOP;
+        }
+        else {
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Get the listener this printer reports statement generation measurements to.
+     *
+     * @return the listener, {@link StatementMetrics#NOOP} unless one was given
+     */
+    public StatementMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -23,51 +106,262 @@ public class StatementPrinter {
      * (Original comment retained)
      *
      * @return the formatted statement
-     * @throws RuntimeException if one of the play types is not known
      */
     public String statement() {
-        int totalAmount = 0;
-        int volumeCredits = 0;
-
-        // Use StringBuilder for building the result string efficiently
         final StringBuilder result =
-                new StringBuilder("Statement for " + invoice.getCustomer() + System.lineSeparator());
-
-        final NumberFormat frmt = NumberFormat.getCurrencyInstance(Locale.US);
+                new StringBuilder(ESTIMATED_LINE_LENGTH * (invoice.getPerformances().size() + 2));
+        try {
+            statement(result);
+        }
+        catch (IOException exception) {
+            // appending to a StringBuilder never fails
+            throw new UncheckedIOException(exception);
+        }
+        return result.toString();
+    }
 
-        // Loop through each performance and calculate values
-        for (Performance performance : invoice.getPerformances()) {
-            final Play play = getPlay(performance);
+    /**
+     * Writes the formatted statement of the invoice associated with this printer to the given
+     * destination, line by line as it is computed.
+     *
+     * @param out the destination of the statement
+     * @throws IOException      if the destination cannot be written to
+     */
+    public void statement(Appendable out) throws IOException {
+        final StatementRenderedEvent event = new StatementRenderedEvent();
+        event.begin();
+        final StatementSink sink;
+        if (renderMode == RenderMode.FORMAT) {
+            sink = new FormattedStatement(out);
+        }
+        else {
+            sink = RENDERERS.get().lines(currencyFormatter, out);
+        }
+        final long totalAmount = write(sink);
+        event.end();
+        commit(event, "text", totalAmount);
+    }
 
-            // Extracted methods improve readability and reduce duplication
-            final int thisAmount = calculateAmount(performance, play);
-            final int thisPerformanceCredits = calculateVolumeCredits(performance, play);
+    /**
+     * Records a statement written by this printer with the flight recorder if it was slow enough.
+     *
+     * @param event       the event, ended once the statement was written
+     * @param format      the format of the statement
+     * @param totalAmount the total amount of the statement in cents
+     */
+    final void commit(StatementRenderedEvent event, String format, long totalAmount) {
+        if (event.shouldCommit()) {
+            event.customer = invoice.getCustomer();
+            event.format = format;
+            event.performances = invoice.getPerformances().size();
+            event.totalAmount = totalAmount;
+            event.commit();
+        }
+    }
 
-            totalAmount += thisAmount;
-            volumeCredits += thisPerformanceCredits;
+    /**
+     * Writes the formatted statement of the invoice associated with this printer to the given stream.
+     * The stream is flushed but not closed.
+     *
+     * @param out     the stream to write to
+     * @param charset the charset to encode the statement with
+     * @throws IOException      if the stream cannot be written to
+     */
+    public void writeStatement(OutputStream out, Charset charset) throws IOException {
+        final Writer writer = new OutputStreamWriter(out, charset);
+        statement(writer);
+        writer.flush();
+    }
 
-            // print line for this order (original formatting retained)
-            result.append(String.format(
-                    "  %s: %s (%s seats)%n",
-                    play.getName(),
-                    frmt.format(thisAmount / Constants.PERCENT_FACTOR),
-                    performance.getAudience()
-            ));
-        }
-
-        // Add summary lines
-        result.append(String.format(
-                "Amount owed is %s%n",
-                frmt.format(totalAmount / Constants.PERCENT_FACTOR)
-        ));
-        result.append(String.format(
-                "You earned %s credits%n",
-                volumeCredits
-        ));
+    /**
+     * Prices every performance of the invoice associated with this printer, so that the result can be
+     * rendered by this and other printers without pricing it again.
+     *
+     * @return the priced statement
+     */
+    public StatementData createStatementData() {
+        return new StatementData(this);
+    }
 
+    /**
+     * Returns the statement for already priced data, formatted the way this printer formats statements.
+     *
+     * @param data the priced statement, from any printer
+     * @return the formatted statement
+     */
+    public String render(StatementData data) {
+        final StringBuilder result = new StringBuilder(ESTIMATED_LINE_LENGTH * (data.size() + 2));
+        try {
+            render(data, result);
+        }
+        catch (IOException exception) {
+            // appending to a StringBuilder never fails
+            throw new UncheckedIOException(exception);
+        }
         return result.toString();
     }
 
+    /**
+     * Writes the statement for already priced data to the given destination, formatted the way this
+     * printer formats statements. Always uses the {@link RenderMode#DIRECT} path.
+     *
+     * @param data the priced statement, from any printer
+     * @param out  the destination of the statement
+     * @throws IOException if the destination cannot be written to
+     */
+    public void render(StatementData data, Appendable out) throws IOException {
+        measure(data, RENDERERS.get().lines(currencyFormatter, out));
+    }
+
+    /**
+     * Writes the statement for already priced data to the given stream, formatted the way this
+     * printer formats statements. The stream is flushed but not closed.
+     *
+     * @param data    the priced statement, from any printer
+     * @param out     the stream to write to
+     * @param charset the charset to encode the statement with
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeStatement(StatementData data, OutputStream out, Charset charset) throws IOException {
+        final Writer writer = new OutputStreamWriter(out, charset);
+        render(data, writer);
+        writer.flush();
+    }
+
+    /**
+     * Prices the invoice of this printer and hands every performance to the given sink as soon as it is
+     * priced, so the statement is written in a single pass without keeping the priced performances.
+     * Every stage, and the statement as a whole, is reported to this printer's metrics listener.
+     *
+     * @param sink writes the statement
+     * @return the total amount in cents
+     * @throws IOException if the statement cannot be written
+     */
+    final long write(StatementSink sink) throws IOException {
+        final long result;
+        if (metrics == StatementMetrics.NOOP) {
+            result = priceUnmeasured(sink);
+        }
+        else {
+            result = priceMeasured(sink, true);
+        }
+        return result;
+    }
+
+    /**
+     * Prices the invoice of this printer into the given sink like {@link #write}, but reports only the
+     * pricing stages to the metrics listener, as the sink keeps the performances rather than writing them.
+     *
+     * @param sink receives the priced performances
+     * @throws IOException if the sink fails
+     */
+    final void price(StatementSink sink) throws IOException {
+        if (metrics == StatementMetrics.NOOP) {
+            priceUnmeasured(sink);
+        }
+        else {
+            priceMeasured(sink, false);
+        }
+    }
+
+    /**
+     * Writes the statement for already priced data to the given sink, reporting it to this printer's
+     * metrics listener.
+     *
+     * @param data the priced statement
+     * @param sink writes the statement
+     * @throws IOException if the statement cannot be written
+     */
+    final void measure(StatementData data, StatementSink sink) throws IOException {
+        if (metrics == StatementMetrics.NOOP) {
+            data.writeTo(sink);
+        }
+        else {
+            final long start = System.nanoTime();
+            final long written = data.writeTo(sink);
+            final long nanos = System.nanoTime() - start;
+            metrics.stageCompleted(StatementMetrics.Stage.FORMATTING, nanos);
+            metrics.statementCompleted(data.size(), written, nanos);
+        }
+    }
+
+    /**
+     * The pricing pass behind {@link #write} and {@link #price}, without reading the clock.
+     */
+    private long priceUnmeasured(StatementSink sink) throws IOException {
+        long totalAmount = 0;
+        long volumeCredits = 0;
+        sink.customer(invoice.getCustomer());
+        for (Performance performance : invoice.getPerformances()) {
+            final Play play = playOf(performance);
+            final int amount = calculateAmount(performance, play);
+            final int credits = calculateVolumeCredits(performance, play);
+            totalAmount = Math.addExact(totalAmount, amount);
+            volumeCredits = Math.addExact(volumeCredits, credits);
+            sink.performance(play.getName(), performance.getAudience(), amount, credits);
+        }
+        sink.totals(totalAmount, volumeCredits);
+        return totalAmount;
+    }
+
+    /**
+     * The same as {@link #priceUnmeasured}, timing every stage and reporting it to the metrics listener.
+     * The time spent in the sink is reported as {@link StatementMetrics.Stage#FORMATTING}, together with the
+     * whole statement, only when the sink writes one.
+     */
+    private long priceMeasured(StatementSink sink, boolean writing) throws IOException {
+        final long start = System.nanoTime();
+        long totalAmount = 0;
+        long volumeCredits = 0;
+        long lookupNanos = 0;
+        long pricingNanos = 0;
+        long creditsNanos = 0;
+        sink.customer(invoice.getCustomer());
+        long mark = System.nanoTime();
+        long formattingNanos = mark - start;
+        for (Performance performance : invoice.getPerformances()) {
+            final Play play = playOf(performance);
+            long now = System.nanoTime();
+            lookupNanos += now - mark;
+            mark = now;
+            final int amount = calculateAmount(performance, play);
+            totalAmount = Math.addExact(totalAmount, amount);
+            now = System.nanoTime();
+            pricingNanos += now - mark;
+            mark = now;
+            final int credits = calculateVolumeCredits(performance, play);
+            volumeCredits = Math.addExact(volumeCredits, credits);
+            now = System.nanoTime();
+            creditsNanos += now - mark;
+            mark = now;
+            sink.performance(play.getName(), performance.getAudience(), amount, credits);
+            now = System.nanoTime();
+            formattingNanos += now - mark;
+            mark = now;
+        }
+        final long written = sink.totals(totalAmount, volumeCredits);
+        final long end = System.nanoTime();
+        formattingNanos += end - mark;
+
+        metrics.stageCompleted(StatementMetrics.Stage.PLAY_LOOKUP, lookupNanos);
+        metrics.stageCompleted(StatementMetrics.Stage.PRICING, pricingNanos);
+        metrics.stageCompleted(StatementMetrics.Stage.CREDITS, creditsNanos);
+        if (writing) {
+            metrics.stageCompleted(StatementMetrics.Stage.FORMATTING, formattingNanos);
+            metrics.statementCompleted(invoice.getPerformances().size(), written, end - start);
+        }
+        return totalAmount;
+    }
+
+    private Play playOf(Performance performance) {
+        final Play result = getPlay(performance);
+        if (result == null) {
+            metrics.unknownPlay(performance.getPlayID());
+            throw new IllegalArgumentException(String.format("unknown play: %s", performance.getPlayID()));
+        }
+        return result;
+    }
+
     /**
      * Calculates the charge amount for a performance.
      * Extracted to remove duplication and improve clarity.
@@ -75,55 +369,9 @@ public class StatementPrinter {
      * @param performance the performance
      * @param play        the play information
      * @return the amount in cents for this performance
-     * @throws RuntimeException if the play type is not supported
      */
     private int calculateAmount(Performance performance, Play play) {
-        final int audience = performance.getAudience();
-        final String type = play.getType();
-
-        int result;
-        switch (type) {
-            case "tragedy":
-                result = Constants.TRAGEDY_BASE_AMOUNT;
-                if (audience > Constants.TRAGEDY_AUDIENCE_THRESHOLD) {
-                    result += Constants.TRAGEDY_OVER_BASE_CAPACITY_PER_PERSON
-                            * (audience - Constants.TRAGEDY_AUDIENCE_THRESHOLD);
-                }
-                break;
-
-            case "comedy":
-                result = Constants.COMEDY_BASE_AMOUNT;
-                if (audience > Constants.COMEDY_AUDIENCE_THRESHOLD) {
-                    result += Constants.COMEDY_OVER_BASE_CAPACITY_AMOUNT
-                            + (Constants.COMEDY_OVER_BASE_CAPACITY_PER_PERSON
-                            * (audience - Constants.COMEDY_AUDIENCE_THRESHOLD));
-                }
-                result += Constants.COMEDY_AMOUNT_PER_AUDIENCE * audience;
-                break;
-
-            case "history":
-                // New play type: history
-                result = Constants.HISTORY_BASE_AMOUNT;
-                if (audience > Constants.HISTORY_AUDIENCE_THRESHOLD) {
-                    result += Constants.HISTORY_OVER_BASE_CAPACITY_PER_PERSON
-                            * (audience - Constants.HISTORY_AUDIENCE_THRESHOLD);
-                }
-                break;
-
-            case "pastoral":
-                // New play type: pastoral
-                result = Constants.PASTORAL_BASE_AMOUNT;
-                if (audience > Constants.PASTORAL_AUDIENCE_THRESHOLD) {
-                    result += Constants.PASTORAL_OVER_BASE_CAPACITY_PER_PERSON
-                            * (audience - Constants.PASTORAL_AUDIENCE_THRESHOLD);
-                }
-                break;
-
-            default:
-                // Keep original behavior for truly unknown types
-                throw new RuntimeException(String.format("unknown type: %s", type));
-        }
-        return result;
+        return play.getCalculator().amountFor(performance.getAudience());
     }
 
     /**
@@ -135,39 +383,7 @@ public class StatementPrinter {
      * @return the volume credits for this performance
      */
     private int calculateVolumeCredits(Performance performance, Play play) {
-        final int audience = performance.getAudience();
-        final String type = play.getType();
-
-        int result;
-
-        // Different play types may have different base thresholds for credits
-        switch (type) {
-            case "history":
-                result = Math.max(
-                        audience - Constants.HISTORY_VOLUME_CREDIT_THRESHOLD, 0);
-                break;
-
-            case "pastoral":
-                // Pastoral performances earn more credits: base plus an extra bonus
-                result = Math.max(
-                        audience - Constants.PASTORAL_VOLUME_CREDIT_THRESHOLD, 0);
-                // extra bonus: one additional credit for every two attendees
-                result += audience / 2;
-                break;
-
-            default:
-                // tragedy, comedy, or any other types that use the base threshold
-                result = Math.max(
-                        audience - Constants.BASE_VOLUME_CREDIT_THRESHOLD, 0);
-                break;
-        }
-
-        // add extra credit for every five comedy attendees (original rule)
-        if ("comedy".equals(type)) {
-            result += audience / Constants.COMEDY_EXTRA_VOLUME_FACTOR;
-        }
-
-        return result;
+        return play.getCalculator().volumeCredits(performance.getAudience());
     }
 
     // ----------------------------------------------------------------------
@@ -185,6 +401,15 @@ public class StatementPrinter {
         return calculateAmount(performance, play);
     }
 
+    /**
+     * Get the invoice this printer renders.
+     *
+     * @return the invoice
+     */
+    Invoice getInvoice() {
+        return invoice;
+    }
+
     /**
      * Get the Play object for a given performance.
      *
@@ -192,7 +417,14 @@ public class StatementPrinter {
      * @return the Play associated with the performance
      */
     public Play getPlay(Performance performance) {
-        return plays.get(performance.getPlayID());
+        final Play result;
+        if (catalog == null) {
+            result = plays.get(performance.getPlayID());
+        }
+        else {
+            result = catalog.get(performance);
+        }
+        return result;
     }
 
     /**
@@ -213,20 +445,50 @@ public class StatementPrinter {
      * @return formatted USD string
      */
     public String usd(int amount) {
-        final NumberFormat frmt = NumberFormat.getCurrencyInstance(Locale.US);
-        return frmt.format(amount / Constants.PERCENT_FACTOR);
+        return usd((long) amount);
+    }
+
+    /**
+     * Convert cents to a USD formatted string, keeping the cents exactly.
+     * Uses this printer's {@link CurrencyFormatter}, which is USD unless another one was given.
+     *
+     * @param amount amount in cents
+     * @return formatted USD string
+     */
+    public String usd(long amount) {
+        return currencyFormatter.format(amount);
+    }
+
+    /**
+     * Get the formatter used for every amount this printer writes.
+     *
+     * @return the currency formatter
+     */
+    public CurrencyFormatter getCurrencyFormatter() {
+        return currencyFormatter;
     }
 
     /**
      * Calculate total amount from the invoice data.
      *
      * @return total amount in cents
+     * @throws ArithmeticException if the total does not fit in an int; use {@link #getTotalAmountExact()}
      */
     public int getTotalAmount() {
-        int total = 0;
+        return Math.toIntExact(getTotalAmountExact());
+    }
+
+    /**
+     * Calculate total amount from the invoice data without the int range limit of {@link #getTotalAmount()}.
+     *
+     * @return total amount in cents
+     * @throws ArithmeticException if the total does not fit in a long
+     */
+    public long getTotalAmountExact() {
+        long total = 0;
         for (Performance performance : invoice.getPerformances()) {
             final Play play = getPlay(performance);
-            total += calculateAmount(performance, play);
+            total = Math.addExact(total, calculateAmount(performance, play));
         }
         return total;
     }
@@ -235,13 +497,52 @@ public class StatementPrinter {
      * Calculate total volume credits from the invoice data.
      *
      * @return credits total
+     * @throws ArithmeticException if the total does not fit in an int
      */
     public int getTotalVolumeCredits() {
         int total = 0;
         for (Performance performance : invoice.getPerformances()) {
             final Play play = getPlay(performance);
-            total += calculateVolumeCredits(performance, play);
+            total = Math.addExact(total, calculateVolumeCredits(performance, play));
         }
         return total;
     }
+
+    /**
+     * Writes the statement with {@code String.format} as it is priced, as selected by {@link RenderMode#FORMAT}.
+     */
+    private final class FormattedStatement implements StatementSink {
+
+        private final Appendable out;
+        private long characters;
+
+        FormattedStatement(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public void customer(String customer) throws IOException {
+            write("Statement for " + customer + System.lineSeparator());
+        }
+
+        @Override
+        public void performance(String playName, int audience, int amount, int volumeCredits)
+                throws IOException {
+            // print line for this order (original formatting retained)
+            write(String.format("  %s: %s (%s seats)%n", playName, usd(amount), audience));
+        }
+
+        @Override
+        public long totals(long totalAmount, long totalVolumeCredits) throws IOException {
+            // Add summary lines
+            write(String.format("Amount owed is %s%n", usd(totalAmount))
+                    + String.format("You earned %s credits%n", totalVolumeCredits));
+            return characters;
+        }
+
+        private void write(String text) throws IOException {
+            out.append(text);
+            characters += text.length();
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package theater;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for writing one statement. Only statements slower than the threshold are
+ * recorded unless a recording lowers it.
+ */
+@Name("theater.StatementRendered")
+@Label("Statement Rendered")
+@Category({"Theater", "Billing"})
+@Description("A statement was written")
+@Threshold("20 ms")
+@StackTrace(false)
+final class StatementRenderedEvent extends Event {
+
+    @Label("Customer")
+    String customer;
+
+    @Label("Format")
+    @Description("text or html")
+    String format;
+
+    @Label("Performances")
+    int performances;
+
+    @Label("Total Amount")
+    @Description("Total amount of the statement in cents")
+    long totalAmount;
+}
@@ -0,0 +1,178 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Renders a plain-text statement by appending directly into a reusable buffer.
+ * Produces the same text as the {@link RenderMode#FORMAT} path without going through
+ * {@code String.format} for each line, and formats amounts with the printer's {@link CurrencyFormatter}.
+ */
+public final class StatementRenderer {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final StringBuilder buffer;
+    private final int retainedCapacity;
+    private final Lines lines = new Lines();
+
+    public StatementRenderer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StatementRenderer(int capacity) {
+        this.buffer = new StringBuilder(capacity);
+        this.retainedCapacity = Math.max(capacity, MAX_RETAINED_CAPACITY);
+    }
+
+    /**
+     * Renders the statement of the given printer into this renderer's buffer.
+     * The returned sequence is only valid until the next call to this method.
+     *
+     * @param printer the printer holding the invoice and plays
+     * @return the rendered statement
+     */
+    public CharSequence render(StatementPrinter printer) {
+        resetBuffer();
+        try {
+            printer.write(lines(printer.getCurrencyFormatter(), buffer));
+        }
+        catch (IOException exception) {
+            // appending to a StringBuilder never fails
+            throw new UncheckedIOException(exception);
+        }
+        return buffer;
+    }
+
+    /**
+     * Streams the statement of the given printer to the given destination, writing each line as soon as
+     * its performance is priced. Lines are staged in this renderer's buffer and handed over whenever a few
+     * kilobytes have accumulated, so memory use does not grow with the number of performances.
+     * The statement is reported to the printer's {@link StatementMetrics} listener.
+     *
+     * @param printer the printer holding the invoice and plays
+     * @param out     the destination of the statement
+     * @throws IOException      if the destination cannot be written to
+     */
+    public void render(StatementPrinter printer, Appendable out) throws IOException {
+        printer.write(lines(printer.getCurrencyFormatter(), out));
+    }
+
+    /**
+     * Streams a statement from already priced data to the given destination, staged like
+     * {@link #render(StatementPrinter, Appendable)}.
+     *
+     * @param data      the priced statement
+     * @param formatter the formatter for amounts
+     * @param out       the destination of the statement
+     * @return the number of characters written
+     * @throws IOException if the destination cannot be written to
+     */
+    public long render(StatementData data, CurrencyFormatter formatter, Appendable out) throws IOException {
+        return data.writeTo(lines(formatter, out));
+    }
+
+    /**
+     * Prepares this renderer's sink to write one statement to the given destination. The sink is reused,
+     * so it is only valid until the next call to this method.
+     *
+     * @param formatter the formatter for amounts
+     * @param out       the destination of the statement
+     * @return the sink
+     */
+    StatementSink lines(CurrencyFormatter formatter, Appendable out) {
+        lines.formatter = formatter;
+        lines.out = out;
+        if (out instanceof StringBuilder) {
+            // an in-memory destination is written straight to, since staging would only add a copy
+            lines.target = (StringBuilder) out;
+        }
+        else {
+            resetBuffer();
+            lines.target = buffer;
+        }
+        // the caller's own buffer may already hold text that is not part of this statement
+        lines.initialLength = lines.target.length();
+        lines.characters = 0;
+        return lines;
+    }
+
+    private void resetBuffer() {
+        if (buffer.capacity() > retainedCapacity) {
+            // don't hold on to the buffer of an unusually large statement
+            buffer.setLength(0);
+            buffer.trimToSize();
+        }
+        buffer.setLength(0);
+    }
+
+    static void appendHeader(StringBuilder out, String customer) {
+        out.append("Statement for ").append(customer).append(LINE_SEPARATOR);
+    }
+
+    static void appendLine(StringBuilder out, CurrencyFormatter formatter, String playName, int amount,
+                           int audience) {
+        out.append("  ").append(playName).append(": ");
+        formatter.append(out, amount);
+        out.append(" (").append(audience).append(" seats)").append(LINE_SEPARATOR);
+    }
+
+    static void appendSummary(StringBuilder out, CurrencyFormatter formatter, long totalAmount,
+                              long volumeCredits) {
+        out.append("Amount owed is ");
+        formatter.append(out, totalAmount);
+        out.append(LINE_SEPARATOR);
+        out.append("You earned ").append(volumeCredits).append(" credits").append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Appends each line as it is received, handing staged lines over once enough have accumulated.
+     */
+    private static final class Lines implements StatementSink {
+
+        private CurrencyFormatter formatter;
+        private Appendable out;
+        // where lines are built: the destination itself, or the staging buffer
+        private StringBuilder target;
+        private int initialLength;
+        private long characters;
+
+        @Override
+        public void customer(String customer) {
+            appendHeader(target, customer);
+        }
+
+        @Override
+        public void performance(String playName, int audience, int amount, int volumeCredits)
+                throws IOException {
+            appendLine(target, formatter, playName, amount, audience);
+            if (target != out && target.length() >= FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+
+        @Override
+        public long totals(long totalAmount, long totalVolumeCredits) throws IOException {
+            appendSummary(target, formatter, totalAmount, totalVolumeCredits);
+            if (target == out) {
+                characters += target.length() - initialLength;
+            }
+            else {
+                flush();
+            }
+            final long result = characters;
+            out = null;
+            target = null;
+            return result;
+        }
+
+        private void flush() throws IOException {
+            characters += target.length();
+            out.append(target);
+            target.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package theater;
+
+/**
+ * The outcome of rendering the statement of one invoice in a batch:
+ * either the statement or the exception that prevented it.
+ */
+public final class StatementResult {
+
+    private final Invoice invoice;
+    private final String statement;
+    private final RuntimeException failure;
+
+    private StatementResult(Invoice invoice, String statement, RuntimeException failure) {
+        this.invoice = invoice;
+        this.statement = statement;
+        this.failure = failure;
+    }
+
+    static StatementResult success(Invoice invoice, String statement) {
+        return new StatementResult(invoice, statement, null);
+    }
+
+    static StatementResult failure(Invoice invoice, RuntimeException failure) {
+        return new StatementResult(invoice, null, failure);
+    }
+
+    /**
+     * Get the invoice this result belongs to.
+     *
+     * @return the invoice
+     */
+    public Invoice getInvoice() {
+        return invoice;
+    }
+
+    /**
+     * Whether the statement was rendered.
+     *
+     * @return true if the statement is available
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Get the rendered statement.
+     *
+     * @return the statement, or null if rendering failed
+     */
+    public String getStatement() {
+        return statement;
+    }
+
+    /**
+     * Get the reason rendering failed.
+     *
+     * @return the failure, or null if rendering succeeded
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+}
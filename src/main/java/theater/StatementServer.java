@@ -0,0 +1,456 @@
+package theater;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An embedded HTTP service for statements on demand, backed by one shared, immutable play catalog.
+ *
+ * <ul>
+ *     <li>{@code POST /statement} takes one invoice object shaped like an element of {@code invoices.json}
+ *     and returns its statement as {@code text/plain}, or as {@code text/html} when the request asks
+ *     for {@code ?format=html} or accepts only HTML. Bodies over 1 MiB are refused with 413, invoices
+ *     that are malformed or followed by anything but whitespace with 400, and invoices that cannot be
+ *     priced, like those with unknown plays or totals that overflow, with 422.</li>
+ *     <li>{@code GET /plays} returns the catalog shaped like {@code plays.json}.</li>
+ * </ul>
+ *
+ * <p>Requests are handled on the given executor. Java 11 has no virtual threads, so by default a fixed
+ * pool sized to the machine is used; on a later JDK a virtual-thread-per-task executor can be passed in.
+ * Connections are kept alive between requests.
+ *
+ * <p>The JDK server sends the headers and the body of a response in separate writes, so unless
+ * TCP_NODELAY is on, every response on a kept-alive connection waits out the client's delayed ACK.
+ * It is turned on by the JVM-wide system property {@code sun.net.httpserver.nodelay}, read when the first
+ * server is created, so this class leaves it to the application: {@link #main} sets it unless it was
+ * given, and an application embedding the server opts in by setting it to {@code true} itself.</p>
+ */
+public final class StatementServer {
+
+    private static final int BACKLOG = 1024;
+    private static final int THREADS_PER_PROCESSOR = 2;
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int PAYLOAD_TOO_LARGE = 413;
+    private static final int UNPROCESSABLE = 422;
+    private static final int INTERNAL_ERROR = 500;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final long DEFAULT_DRAIN_SECONDS = 5;
+    private static final int END_OF_STREAM = -1;
+    private static final int DRAIN_BUFFER_SIZE = 512;
+    private static final int MAX_BODY_SIZE = 1 << 20;
+    private static final String TEXT = "text/plain; charset=utf-8";
+    private static final String HTML = "text/html; charset=utf-8";
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final PlayCatalog catalog;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    // the catalog never changes, so its JSON is built once
+    private final byte[] playsJson;
+    // the requests being handled, and whether the server is stopping; guarded by this
+    private int active;
+    private boolean stopping;
+
+    /**
+     * Creates a server on the given port with a default executor.
+     *
+     * @param catalog the play catalog shared by all requests
+     * @param port    the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public StatementServer(PlayCatalog catalog, int port) throws IOException {
+        this(catalog, new InetSocketAddress(port), Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors() * THREADS_PER_PROCESSOR), true);
+    }
+
+    /**
+     * Creates a server handling requests on the given executor. The executor is not shut down by {@link #stop()}.
+     *
+     * @param catalog  the play catalog shared by all requests
+     * @param address  the address to bind
+     * @param executor the executor to handle requests on
+     * @throws IOException if the address cannot be bound
+     */
+    public StatementServer(PlayCatalog catalog, InetSocketAddress address, ExecutorService executor)
+            throws IOException {
+        this(catalog, address, executor, false);
+    }
+
+    private StatementServer(PlayCatalog catalog, InetSocketAddress address, ExecutorService executor,
+                            boolean ownsExecutor) throws IOException {
+        this.catalog = catalog;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.playsJson = playsJson(catalog).getBytes(StandardCharsets.UTF_8);
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/statement", exchange -> serve(exchange, this::handleStatement));
+        server.createContext("/plays", exchange -> serve(exchange, this::handlePlays));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, giving the requests in progress up to five seconds to finish.
+     *
+     * @see #stop(long, TimeUnit)
+     */
+    public void stop() {
+        stop(DEFAULT_DRAIN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops taking requests, waits up to the given time for the requests in progress to finish, then closes
+     * every connection and shuts the default executor down. Requests that arrive meanwhile are turned away
+     * with 503 Service Unavailable.
+     *
+     * @param timeout the longest time to wait for the requests in progress
+     * @param unit    the unit of the timeout
+     */
+    public void stop(long timeout, TimeUnit unit) {
+        awaitRequests(unit.toNanos(timeout));
+        server.stop(0);
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private synchronized void awaitRequests(long nanos) {
+        stopping = true;
+        final long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        boolean interrupted = false;
+        while (active > 0 && remaining > 0 && !interrupted) {
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            catch (InterruptedException exception) {
+                interrupted = true;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve(HttpExchange exchange, HttpHandler handler) throws IOException {
+        if (enter()) {
+            try {
+                handler.handle(exchange);
+            }
+            finally {
+                exit();
+            }
+        }
+        else {
+            try {
+                exchange.getResponseHeaders().set("Connection", "close");
+                respond(exchange, SERVICE_UNAVAILABLE, TEXT, "shutting down");
+            }
+            finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private synchronized boolean enter() {
+        final boolean result = !stopping;
+        if (result) {
+            active++;
+        }
+        return result;
+    }
+
+    private synchronized void exit() {
+        active--;
+        if (active == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Get the port the server is bound to.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleStatement(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/statement".equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, NOT_FOUND, TEXT, "not found");
+            }
+            else if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, METHOD_NOT_ALLOWED, TEXT, "use POST");
+            }
+            else {
+                renderStatement(exchange);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void renderStatement(HttpExchange exchange) throws IOException {
+        Invoice invoice = null;
+        // not closed here: the rest of a rejected body is drained before responding
+        final Reader body = new InputStreamReader(new BoundedInputStream(exchange.getRequestBody()),
+                StandardCharsets.UTF_8);
+        try {
+            invoice = InvoiceReader.readSingle(body, catalog);
+        }
+        catch (BodyTooLargeException exception) {
+            exchange.getResponseHeaders().set("Connection", "close");
+            send(exchange, PAYLOAD_TOO_LARGE, TEXT, exception.getMessage().getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException | UncheckedIOException exception) {
+            respond(exchange, BAD_REQUEST, TEXT, exception.getMessage());
+        }
+        if (invoice != null) {
+            final boolean html = wantsHtml(exchange);
+            String statement = null;
+            try {
+                if (html) {
+                    statement = new HTMLStatementPrinter(invoice, catalog).statement();
+                }
+                else {
+                    statement = new StatementPrinter(invoice, catalog).statement();
+                }
+            }
+            catch (IllegalArgumentException | ArithmeticException exception) {
+                // unknown plays and totals that overflow cannot be priced
+                respond(exchange, UNPROCESSABLE, TEXT, "cannot price invoice");
+            }
+            catch (RuntimeException exception) {
+                respond(exchange, INTERNAL_ERROR, TEXT, "cannot render statement");
+            }
+            if (statement != null) {
+                respond(exchange, OK, html ? HTML : TEXT, statement);
+            }
+        }
+    }
+
+    private static boolean wantsHtml(HttpExchange exchange) {
+        final URI uri = exchange.getRequestURI();
+        final String accept = exchange.getRequestHeaders().getFirst("Accept");
+        final String format = queryParameter(uri, "format");
+        final boolean result;
+        if (format != null) {
+            result = "html".equals(format);
+        }
+        else {
+            // clients that list several types, like browsers and HttpURLConnection, get plain text
+            result = accept != null && accept.trim().startsWith("text/html") && accept.indexOf(',') < 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the first query parameter with the given name, compared exactly and undecoded.
+     */
+    private static String queryParameter(URI uri, String name) {
+        String result = null;
+        final String query = uri.getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                final int equals = parameter.indexOf('=');
+                final String key = equals < 0 ? parameter : parameter.substring(0, equals);
+                if (result == null && name.equals(key)) {
+                    result = equals < 0 ? "" : parameter.substring(equals + 1);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void handlePlays(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/plays".equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, NOT_FOUND, TEXT, "not found");
+            }
+            else if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, METHOD_NOT_ALLOWED, TEXT, "use GET");
+            }
+            else {
+                respond(exchange, OK, JSON, playsJson);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        respond(exchange, status, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        // the rest of a request body must be read for the connection to be reused
+        if (!drain(exchange.getRequestBody())) {
+            exchange.getResponseHeaders().set("Connection", "close");
+        }
+        send(exchange, status, contentType, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Discards up to {@link #MAX_BODY_SIZE} bytes of a request body.
+     *
+     * @return false if the body is longer, so the connection cannot be reused
+     */
+    private static boolean drain(InputStream in) throws IOException {
+        final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        long drained = 0;
+        int read = in.read(buffer);
+        while (read != END_OF_STREAM && drained <= MAX_BODY_SIZE) {
+            drained += read;
+            read = in.read(buffer);
+        }
+        return read == END_OF_STREAM;
+    }
+
+    private static String playsJson(PlayCatalog catalog) {
+        final StringBuilder result = new StringBuilder("{");
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            final Play play = catalog.get(ordinal);
+            if (ordinal > 0) {
+                result.append(',');
+            }
+            appendQuoted(result, catalog.idOf(ordinal));
+            result.append(":{\"name\":");
+            appendQuoted(result, play.getName());
+            result.append(",\"type\":");
+            appendQuoted(result, play.getType());
+            result.append('}');
+        }
+        return result.append('}').toString();
+    }
+
+    private static void appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            }
+            else if (c < ' ') {
+                out.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Thrown by a {@link BoundedInputStream} when a request body is longer than {@link #MAX_BODY_SIZE}.
+     */
+    private static final class BodyTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLargeException() {
+            super("request body over " + MAX_BODY_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * A request body that fails once more than {@link #MAX_BODY_SIZE} bytes have been read from it.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private long remaining = MAX_BODY_SIZE;
+
+        BoundedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = super.read();
+            if (result != END_OF_STREAM) {
+                count(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int result = super.read(buffer, offset, length);
+            if (result != END_OF_STREAM) {
+                count(result);
+            }
+            return result;
+        }
+
+        private void count(int read) throws BodyTooLargeException {
+            remaining -= read;
+            if (remaining < 0) {
+                throw new BodyTooLargeException();
+            }
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     *
+     * @param args the plays file shaped like {@code plays.json} and the port
+     * @throws IOException if the plays cannot be read or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("usage: StatementServer <plays.json> <port>");
+        }
+        // see the class comment; read by the first server created
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        final Map<String, Play> plays = PlayCatalogReader.read(Paths.get(args[0]));
+        final StatementServer server = new StatementServer(new PlayCatalog(plays), Integer.parseInt(args[1]));
+        server.start();
+    }
+}
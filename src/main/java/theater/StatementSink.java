@@ -0,0 +1,42 @@
+package theater;
+
+import java.io.IOException;
+
+/**
+ * Receives the contents of a statement in order: the customer, every performance as it is priced, then
+ * the totals. {@link StatementPrinter#price} feeds a sink from the invoice in a single pass, so a renderer
+ * that is a sink writes each line as soon as it is priced without keeping it; {@link StatementData} feeds
+ * one from its columns when already priced data is rendered.
+ */
+interface StatementSink {
+
+    /**
+     * Receives the customer, before any performance.
+     *
+     * @param customer the customer
+     * @throws IOException if the statement cannot be written
+     */
+    void customer(String customer) throws IOException;
+
+    /**
+     * Receives the next priced performance.
+     *
+     * @param playName      the name of the play
+     * @param audience      the number of audience members
+     * @param amount        the amount in cents
+     * @param volumeCredits the volume credits
+     * @throws IOException if the statement cannot be written
+     */
+    void performance(String playName, int audience, int amount, int volumeCredits) throws IOException;
+
+    /**
+     * Receives the totals, after every performance.
+     *
+     * @param totalAmount        the total amount in cents
+     * @param totalVolumeCredits the total volume credits
+     * @return the number of characters written for the statement, or of bytes when encoding straight to a
+     *         stream; 0 for a sink that writes nothing
+     * @throws IOException if the statement cannot be written
+     */
+    long totals(long totalAmount, long totalVolumeCredits) throws IOException;
+}
@@ -0,0 +1,67 @@
+package theater;
+
+/**
+ * A performance calculator that looks amounts and credits up in precomputed tables for
+ * audiences from 0 to a maximum size, and falls back to the calculator it was built from above that.
+ */
+final class TabulatedCalculator extends AbstractPerformanceCalculator {
+
+    private final AbstractPerformanceCalculator delegate;
+    private final int[] amounts;
+    private final int[] credits;
+
+    TabulatedCalculator(AbstractPerformanceCalculator delegate, int maxAudience) {
+        this.delegate = delegate;
+        this.amounts = new int[maxAudience + 1];
+        this.credits = new int[maxAudience + 1];
+        for (int audience = 0; audience <= maxAudience; audience++) {
+            amounts[audience] = delegate.amountFor(audience);
+            credits[audience] = delegate.volumeCredits(audience);
+        }
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        final int result;
+        if (audience >= 0 && audience < amounts.length) {
+            result = amounts[audience];
+        }
+        else {
+            result = delegate.amountFor(audience);
+        }
+        return result;
+    }
+
+    @Override
+    public int volumeCredits(int audience) {
+        final int result;
+        if (audience >= 0 && audience < credits.length) {
+            result = credits[audience];
+        }
+        else {
+            result = delegate.volumeCredits(audience);
+        }
+        return result;
+    }
+
+    @Override
+    PricingRule rule() {
+        return delegate.rule();
+    }
+
+    /**
+     * Checks every table entry against the calculator the table was built from.
+     *
+     * @param type the play type, for the error message
+     * @throws IllegalStateException if an entry differs
+     */
+    void verify(String type) {
+        for (int audience = 0; audience < amounts.length; audience++) {
+            if (amounts[audience] != delegate.amountFor(audience)
+                    || credits[audience] != delegate.volumeCredits(audience)) {
+                throw new IllegalStateException(String.format(
+                        "pricing table for %s disagrees with the calculator at audience %d", type, audience));
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package theater;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the k keys with the largest summed weights over a stream of (key, weight) pairs.
+ *
+ * <p>An exact instance keeps a running total per key and selects the top k with a heap of k entries
+ * when asked. An approximate instance keeps a count-min sketch of the totals instead, plus a heap of
+ * the 4k keys with the largest estimates, so its memory is fixed whatever the number of keys. Its totals
+ * are upper bounds that exceed the true total by at most {@code e / width} of the total weight with
+ * probability {@code 1 - e^-depth}. Instances with the same parameters can be merged, so a stream
+ * can be split into partitions that are processed in parallel.
+ */
+public final class TopK {
+
+    // murmur3 finaliser, to spread String hash codes over the sketch rows
+    private static final long MIX_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_2 = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+    // an approximate instance tracks more candidates than it reports, so that a key that is only
+    // moderately heavy in each partition is still a candidate when the partitions are merged
+    private static final int CANDIDATES_PER_RESULT = 4;
+    private static final Comparator<Entry> DESCENDING = Comparator.comparingLong(Entry::getValue).reversed()
+            .thenComparing(Entry::getKey, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final int k;
+    // exact totals per key; null for an approximate instance
+    private final Map<String, long[]> totals;
+    // count-min sketch, depth rows of width counters; null for an exact instance
+    private final long[][] sketch;
+    private final BoundedHeap candidates;
+
+    /**
+     * Creates an exact instance, whose memory grows with the number of distinct keys.
+     *
+     * @param k the number of keys to report
+     */
+    public TopK(int k) {
+        this(k, null);
+    }
+
+    /**
+     * Creates an approximate instance with fixed memory. Weights must not be negative.
+     *
+     * @param k           the number of keys to report
+     * @param sketchWidth the number of counters per sketch row; more gives smaller overestimates
+     * @param sketchDepth the number of sketch rows; more makes a large overestimate less likely
+     */
+    public TopK(int k, int sketchWidth, int sketchDepth) {
+        this(k, newSketch(sketchWidth, sketchDepth));
+    }
+
+    private TopK(int k, long[][] sketch) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.sketch = sketch;
+        if (sketch == null) {
+            this.totals = new HashMap<>();
+            this.candidates = null;
+        }
+        else {
+            this.totals = null;
+            this.candidates = new BoundedHeap(k * CANDIDATES_PER_RESULT);
+        }
+    }
+
+    private static long[][] newSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("sketch width and depth must be positive");
+        }
+        return new long[depth][width];
+    }
+
+    /**
+     * Get whether totals are estimated by a sketch.
+     *
+     * @return true for an approximate instance
+     */
+    public boolean isApproximate() {
+        return sketch != null;
+    }
+
+    /**
+     * Adds a weight to the total of a key.
+     *
+     * @param key    the key
+     * @param weight the weight
+     * @throws IllegalArgumentException if the weight is negative and this instance is approximate
+     * @throws ArithmeticException      if an exact total does not fit in a long
+     */
+    public void add(String key, long weight) {
+        if (sketch == null) {
+            final long[] total = totals.computeIfAbsent(key, ignored -> new long[1]);
+            total[0] = Math.addExact(total[0], weight);
+        }
+        else {
+            if (weight < 0) {
+                throw new IllegalArgumentException("an approximate top-k cannot take negative weights");
+            }
+            offer(key, addToSketch(key, weight));
+        }
+    }
+
+    /**
+     * Adds everything added to another instance with the same parameters to this one.
+     *
+     * @param other the other instance
+     * @return this instance
+     * @throws IllegalArgumentException if the other instance has different parameters
+     */
+    public TopK merge(TopK other) {
+        if (other.k != k || other.isApproximate() != isApproximate()
+                || isApproximate() && (other.sketch.length != sketch.length
+                || other.sketch[0].length != sketch[0].length)) {
+            throw new IllegalArgumentException("only top-k instances with the same parameters can be merged");
+        }
+        if (sketch == null) {
+            for (Map.Entry<String, long[]> entry : other.totals.entrySet()) {
+                add(entry.getKey(), entry.getValue()[0]);
+            }
+        }
+        else {
+            for (int row = 0; row < sketch.length; row++) {
+                for (int column = 0; column < sketch[row].length; column++) {
+                    sketch[row][column] += other.sketch[row][column];
+                }
+            }
+            // every candidate of either side is estimated again against the combined sketch
+            final List<String> keys = new ArrayList<>(candidates.keys());
+            keys.addAll(other.candidates.keys());
+            candidates.clear();
+            for (String key : keys) {
+                if (candidates.indexOf(key) < 0) {
+                    offer(key, estimate(key));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get the keys with the largest totals, largest first.
+     *
+     * @return at most k entries
+     */
+    public List<Entry> top() {
+        final List<Entry> result = new ArrayList<>();
+        if (sketch == null) {
+            final PriorityQueue<Entry> heap = new PriorityQueue<>(k + 1, DESCENDING.reversed());
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                heap.add(new Entry(entry.getKey(), entry.getValue()[0]));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+            result.addAll(heap);
+        }
+        else {
+            for (int i = 0; i < candidates.size(); i++) {
+                result.add(new Entry(candidates.keys[i], candidates.values[i]));
+            }
+        }
+        result.sort(DESCENDING);
+        return result.subList(0, Math.min(k, result.size()));
+    }
+
+    private void offer(String key, long estimate) {
+        final int index = candidates.indexOf(key);
+        if (index >= 0) {
+            candidates.increase(index, estimate);
+        }
+        else if (candidates.size() < candidates.capacity()) {
+            candidates.insert(key, estimate);
+        }
+        else if (estimate > candidates.minValue()) {
+            candidates.replaceMin(key, estimate);
+        }
+    }
+
+    /**
+     * Adds a weight to the sketch with conservative update: counters are only raised as far as
+     * the new estimate, which keeps overestimates smaller than adding to every row.
+     *
+     * @return the new estimate of the key's total
+     */
+    private long addToSketch(String key, long weight) {
+        final long hash = hash(key);
+        final long result = estimate(hash) + weight;
+        for (int row = 0; row < sketch.length; row++) {
+            final int column = column(hash, row);
+            sketch[row][column] = Math.max(sketch[row][column], result);
+        }
+        return result;
+    }
+
+    private long estimate(String key) {
+        return estimate(hash(key));
+    }
+
+    private long estimate(long hash) {
+        long result = Long.MAX_VALUE;
+        for (int row = 0; row < sketch.length; row++) {
+            result = Math.min(result, sketch[row][column(hash, row)]);
+        }
+        return result;
+    }
+
+    private int column(long hash, int row) {
+        // double hashing: row i uses h1 + i * h2, which is as good as independent hash functions here
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> Integer.SIZE) | 1;
+        return Math.floorMod(h1 + row * h2, sketch[row].length);
+    }
+
+    private static long hash(String key) {
+        long result = key == null ? 0 : key.hashCode();
+        result ^= result >>> MIX_SHIFT;
+        result *= MIX_1;
+        result ^= result >>> MIX_SHIFT;
+        result *= MIX_2;
+        return result ^ result >>> MIX_SHIFT;
+    }
+
+    /**
+     * A key and its total, or for an approximate instance an upper bound of its total.
+     */
+    public static final class Entry {
+        private final String key;
+        private final long value;
+
+        Entry(String key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Get the key.
+         *
+         * @return the key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get the total of the key.
+         *
+         * @return the total
+         */
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * A binary min-heap of at most k keys by value that also knows where each key is, so the value
+     * of a key already on the heap can be raised in place.
+     */
+    private static final class BoundedHeap {
+        private final String[] keys;
+        private final long[] values;
+        private final Map<String, Integer> positions = new HashMap<>();
+        private int size;
+
+        BoundedHeap(int capacity) {
+            keys = new String[capacity];
+            values = new long[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        List<String> keys() {
+            return Arrays.asList(keys).subList(0, size);
+        }
+
+        int indexOf(String key) {
+            final Integer result = positions.get(key);
+            return result == null ? -1 : result;
+        }
+
+        long minValue() {
+            return values[0];
+        }
+
+        void insert(String key, long value) {
+            set(size, key, value);
+            size++;
+            siftUp(size - 1);
+        }
+
+        void increase(int index, long value) {
+            values[index] = value;
+            siftDown(index);
+        }
+
+        void replaceMin(String key, long value) {
+            positions.remove(keys[0]);
+            set(0, key, value);
+            siftDown(0);
+        }
+
+        void clear() {
+            Arrays.fill(keys, null);
+            positions.clear();
+            size = 0;
+        }
+
+        private void siftUp(int start) {
+            int index = start;
+            while (index > 0 && values[(index - 1) / 2] > values[index]) {
+                swap(index, (index - 1) / 2);
+                index = (index - 1) / 2;
+            }
+        }
+
+        private void siftDown(int start) {
+            int index = start;
+            int smallest = smallestOf(index);
+            while (smallest != index) {
+                swap(index, smallest);
+                index = smallest;
+                smallest = smallestOf(index);
+            }
+        }
+
+        private int smallestOf(int index) {
+            int result = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (values[child] < values[result]) {
+                    result = child;
+                }
+            }
+            return result;
+        }
+
+        private void swap(int a, int b) {
+            final String key = keys[a];
+            final long value = values[a];
+            set(a, keys[b], values[b]);
+            set(b, key, value);
+        }
+
+        private void set(int index, String key, long value) {
+            keys[index] = key;
+            values[index] = value;
+            positions.put(key, index);
+        }
+    }
+}
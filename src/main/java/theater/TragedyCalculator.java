@@ -0,0 +1,31 @@
+package theater;
+
+/**
+ * Performance calculator for tragedies.
+ */
+public final class TragedyCalculator extends AbstractPerformanceCalculator {
+
+    static final TragedyCalculator INSTANCE = new TragedyCalculator();
+    private static final PricingRule RULE = new PricingRule(Constants.TRAGEDY_BASE_AMOUNT, 0,
+            Constants.TRAGEDY_AUDIENCE_THRESHOLD, Constants.TRAGEDY_OVER_BASE_CAPACITY_PER_PERSON, 0,
+            Constants.BASE_VOLUME_CREDIT_THRESHOLD, 0);
+
+    private TragedyCalculator() {
+        // shared instance only
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        int result = Constants.TRAGEDY_BASE_AMOUNT;
+        if (audience > Constants.TRAGEDY_AUDIENCE_THRESHOLD) {
+            result = Math.addExact(result, Math.multiplyExact(Constants.TRAGEDY_OVER_BASE_CAPACITY_PER_PERSON,
+                    audience - Constants.TRAGEDY_AUDIENCE_THRESHOLD));
+        }
+        return result;
+    }
+
+    @Override
+    PricingRule rule() {
+        return RULE;
+    }
+}
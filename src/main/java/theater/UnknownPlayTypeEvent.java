@@ -0,0 +1,21 @@
+package theater;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a play type without a performance calculator, recorded with the stack
+ * trace of the code that asked for it.
+ */
+@Name("theater.UnknownPlayType")
+@Label("Unknown Play Type")
+@Category({"Theater", "Billing"})
+@Description("A play type without a performance calculator was requested")
+final class UnknownPlayTypeEvent extends Event {
+
+    @Label("Type")
+    String type;
+}
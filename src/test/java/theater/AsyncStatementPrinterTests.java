@@ -0,0 +1,147 @@
+package theater;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class AsyncStatementPrinterTests {
+
+    /**
+     * Runs nothing until asked, so tests can see what was handed over.
+     */
+    private static final class ManualExecutor implements Executor {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runNext() {
+            tasks.poll().run();
+        }
+    }
+
+
+    private static Invoice invoice(int i) {
+        return new Invoice("Customer" + i, List.of(
+                new Performance("hamlet", 20 + i), new Performance("as-like", 10 + i)));
+    }
+
+    @Test
+    public void statementsMatchPrinterTest() throws Exception {
+        PlayCatalog catalog = TestData.catalog();
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            invoices.add(invoice(i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncStatementPrinter printer = new AsyncStatementPrinter(catalog, executor, 3, Duration.ofSeconds(30));
+
+            assertEquals(new StatementPrinter(invoices.get(7), catalog).statement(),
+                    printer.statementAsync(invoices.get(7)).get(30, TimeUnit.SECONDS));
+            List<String> statements = printer.statementsAsync(invoices).get(30, TimeUnit.SECONDS);
+            assertEquals(invoices.size(), statements.size());
+            for (int i = 0; i < invoices.size(); i++) {
+                assertEquals(new StatementPrinter(invoices.get(i), catalog).statement(), statements.get(i));
+            }
+            assertTrue(printer.statementsAsync(List.of()).get().isEmpty());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrencyIsBoundedTest() {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncStatementPrinter printer = new AsyncStatementPrinter(TestData.catalog(), executor, 2, null);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(printer.statementAsync(invoice(i)));
+        }
+        assertEquals(2, executor.tasks.size());
+        assertEquals(3, printer.getQueued());
+
+        executor.runNext();
+        assertTrue(futures.get(0).isDone());
+        assertEquals(2, executor.tasks.size());
+        assertEquals(2, printer.getRunning());
+        while (!executor.tasks.isEmpty()) {
+            executor.runNext();
+        }
+        for (CompletableFuture<String> future : futures) {
+            assertTrue(future.isDone() && !future.isCompletedExceptionally());
+        }
+        assertEquals(0, printer.getRunning());
+    }
+
+    @Test
+    public void cancelledStatementIsNeverRenderedTest() {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncStatementPrinter printer = new AsyncStatementPrinter(TestData.catalog(), executor, 1, null);
+
+        CompletableFuture<String> first = printer.statementAsync(invoice(1));
+        CompletableFuture<String> second = printer.statementAsync(invoice(2));
+        CompletableFuture<String> third = printer.statementAsync(invoice(3));
+        second.cancel(false);
+
+        executor.runNext();
+        // the cancelled invoice is skipped, so the freed slot goes to the third
+        executor.runNext();
+        assertTrue(executor.tasks.isEmpty());
+        assertTrue(first.isDone() && third.isDone() && !third.isCompletedExceptionally());
+    }
+
+    @Test
+    public void bulkCancellationCancelsPartsTest() {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncStatementPrinter printer = new AsyncStatementPrinter(TestData.catalog(), executor, 1, null);
+
+        CompletableFuture<List<String>> all = printer.statementsAsync(List.of(invoice(1), invoice(2), invoice(3)));
+        all.cancel(false);
+        executor.runNext();
+
+        assertTrue(executor.tasks.isEmpty());
+        assertEquals(0, printer.getRunning());
+        assertEquals(0, printer.getQueued());
+    }
+
+    @Test
+    public void timeoutAndFailureTest() throws InterruptedException {
+        AsyncStatementPrinter printer =
+                new AsyncStatementPrinter(TestData.catalog(), new ManualExecutor(), 1, Duration.ofMillis(20));
+        try {
+            printer.statementAsync(invoice(1)).get();
+            fail("expected a timeout");
+        }
+        catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof TimeoutException);
+        }
+
+        AsyncStatementPrinter direct = new AsyncStatementPrinter(TestData.catalog(), Runnable::run, 1, null);
+        Invoice broken = new Invoice("Broken", List.of(new Performance("no-such-play", 10)));
+        try {
+            direct.statementsAsync(List.of(invoice(1), broken)).get();
+            fail("expected the unknown play to fail the batch");
+        }
+        catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof RuntimeException);
+        }
+    }
+}
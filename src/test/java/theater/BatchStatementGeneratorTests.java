@@ -0,0 +1,64 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class BatchStatementGeneratorTests {
+
+    private static List<Invoice> invoices(int count) {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            invoices.add(new Invoice("Customer" + i, List.of(
+                    new Performance("hamlet", i % 60),
+                    new Performance(i % 3 == 0 ? "as-like" : "othello", i % 45))));
+        }
+        return invoices;
+    }
+
+    @Test
+    public void resultsArriveInInputOrderTest() throws InterruptedException {
+        Map<String, Play> plays = TestData.plays();
+        List<Invoice> invoices = invoices(5_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<StatementResult> results =
+                    new BatchStatementGenerator(plays, executor, 4, 7).generate(invoices);
+
+            assertEquals(invoices.size(), results.size());
+            for (int i = 0; i < invoices.size(); i++) {
+                assertSame(invoices.get(i), results.get(i).getInvoice());
+                assertEquals(new StatementPrinter(invoices.get(i), plays).statement(),
+                        results.get(i).getStatement());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failingInvoiceDoesNotAbortBatchTest() throws InterruptedException {
+        List<Invoice> invoices = new ArrayList<>(invoices(10));
+        // an unknown play id; an unknown play type is already rejected when its Play is created
+        invoices.set(3, new Invoice("Broken", List.of(new Performance("no-such-play", 10))));
+
+        List<StatementResult> results = new BatchStatementGenerator(TestData.plays()).generate(invoices);
+
+        assertEquals(10, results.size());
+        assertFalse(results.get(3).isSuccess());
+        assertTrue(results.get(3).getFailure() instanceof IllegalArgumentException);
+        assertEquals("unknown play: no-such-play", results.get(3).getFailure().getMessage());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i != 3, results.get(i).isSuccess());
+        }
+    }
+}
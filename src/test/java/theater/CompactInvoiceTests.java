@@ -0,0 +1,123 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class CompactInvoiceTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Path copyResource(String path, Path target) throws IOException {
+        try (InputStream in = Objects.requireNonNull(CompactInvoiceTests.class
+                .getClassLoader()
+                .getResourceAsStream(path))) {
+            Files.copy(in, target);
+        }
+        return target;
+    }
+
+    @Test
+    public void convertedArchiveGivesSameStatementsTest() throws IOException {
+        Path json = copyResource("invoices.json", folder.getRoot().toPath().resolve("invoices.json"));
+        Path compact = folder.getRoot().toPath().resolve("invoices.bin");
+        Map<String, Play> plays = PlayCatalogReader.read(
+                copyResource("plays.json", folder.getRoot().toPath().resolve("plays.json")));
+        PlayCatalog catalog = new PlayCatalog(plays);
+
+        assertEquals(1, CompactInvoiceWriter.convert(json, compact, catalog));
+        assertTrue(Files.size(compact) < Files.size(json));
+
+        List<String> expected = new ArrayList<>();
+        try (InvoiceReader invoices = InvoiceReader.open(json)) {
+            for (Invoice invoice : invoices) {
+                expected.add(new StatementPrinter(invoice, plays).statement());
+            }
+        }
+        List<String> actual = new ArrayList<>();
+        for (Invoice invoice : CompactInvoiceReader.open(compact, catalog)) {
+            assertSame(catalog.idOf(invoice.getPerformances().get(0).getPlayOrdinal()),
+                    invoice.getPerformances().get(0).getPlayID());
+            actual.add(new StatementPrinter(invoice, catalog).statement());
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void roundTripsUnusualValuesTest() throws IOException {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        PlayCatalog catalog = new PlayCatalog(plays);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompactInvoiceWriter writer = new CompactInvoiceWriter(out, catalog)) {
+            writer.write(new Invoice("Big\"Coé", List.of(new Performance("hamlet", -3),
+                    new Performance("macbeth", Integer.MAX_VALUE), new Performance("hamlet", Integer.MIN_VALUE))));
+            writer.write(new Invoice(null, List.of()));
+        }
+
+        CompactInvoiceReader invoices = new CompactInvoiceReader(ByteBuffer.wrap(out.toByteArray()), null);
+        Invoice first = invoices.next();
+        assertEquals("Big\"Coé", first.getCustomer());
+        assertEquals(-3, first.getPerformances().get(0).getAudience());
+        assertEquals("macbeth", first.getPerformances().get(1).getPlayID());
+        assertEquals(Integer.MAX_VALUE, first.getPerformances().get(1).getAudience());
+        assertEquals("hamlet", first.getPerformances().get(2).getPlayID());
+        assertEquals(Integer.MIN_VALUE, first.getPerformances().get(2).getAudience());
+        Invoice second = invoices.next();
+        assertNull(second.getCustomer());
+        assertEquals(0, second.getPerformances().size());
+        assertFalse(invoices.hasNext());
+    }
+
+    @Test
+    public void malformedInputFailsTest() throws IOException {
+        try {
+            new CompactInvoiceReader(ByteBuffer.wrap("[{}]".getBytes()), null);
+            fail("expected JSON to be rejected");
+        }
+        catch (IOException exception) {
+            assertEquals("malformed compact invoice at byte 0: not a compact invoice file", exception.getMessage());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CompactInvoiceWriter(out, new PlayCatalog(Map.of())).write(
+                new Invoice("BigCo", List.of(new Performance("hamlet", 1))));
+        byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+        CompactInvoiceReader invoices = new CompactInvoiceReader(ByteBuffer.wrap(bytes), null);
+        try {
+            invoices.next();
+            fail("expected a truncated invoice to be rejected");
+        }
+        catch (UncheckedIOException exception) {
+            assertEquals("malformed compact invoice at byte " + bytes.length + ": unexpected end of input",
+                    exception.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void closingAnEncoderIsHarmlessTest() throws IOException {
+        CompactInvoiceWriter encoder = CompactInvoiceWriter.encoder(new PlayCatalog(Map.of()));
+        encoder.put(new Invoice("BigCo", List.of()));
+
+        encoder.close();
+        assertTrue(encoder.length() > 0);
+    }
+}
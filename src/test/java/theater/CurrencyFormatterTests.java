@@ -0,0 +1,56 @@
+package theater;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class CurrencyFormatterTests {
+
+    private static final long[] AMOUNTS = {0, 1, 5, 99, 100, 150, 12345, 99999, 100000, 173000, 99999999,
+        100000000, -1, -50, -100, -173000, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+
+    private static void assertMatchesNumberFormat(Locale locale, Currency currency) {
+        CurrencyFormatter formatter = CurrencyFormatter.forLocale(locale, currency);
+        NumberFormat expected = NumberFormat.getCurrencyInstance(locale);
+        expected.setCurrency(currency);
+        for (long amount : AMOUNTS) {
+            assertEquals(locale + " " + amount,
+                    expected.format(BigDecimal.valueOf(amount, currency.getDefaultFractionDigits())),
+                    formatter.format(amount));
+        }
+    }
+
+    @Test
+    public void usdMatchesNumberFormatTest() {
+        assertMatchesNumberFormat(Locale.US, Currency.getInstance("USD"));
+        assertEquals("$1,730.00", CurrencyFormatter.USD.format(173000));
+        assertEquals("$1.50", new StatementPrinter(new Invoice("c", List.of()), Map.of()).usd(150));
+    }
+
+    @Test
+    public void otherLocalesMatchNumberFormatTest() {
+        assertMatchesNumberFormat(Locale.GERMANY, Currency.getInstance("EUR"));
+        assertMatchesNumberFormat(Locale.FRANCE, Currency.getInstance("EUR"));
+        assertMatchesNumberFormat(Locale.JAPAN, Currency.getInstance("JPY"));
+        assertMatchesNumberFormat(Locale.UK, Currency.getInstance("GBP"));
+        assertMatchesNumberFormat(Locale.forLanguageTag("ar-EG"), Currency.getInstance("EGP"));
+    }
+
+    @Test
+    public void statementUsesGivenFormatterTest() {
+        Map<String, Play> plays = Map.of("hamlet", new Play("Hamlet", "tragedy"));
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55)));
+        CurrencyFormatter euros = CurrencyFormatter.forLocale(Locale.GERMANY, Currency.getInstance("EUR"));
+
+        for (RenderMode mode : RenderMode.values()) {
+            String result = new StatementPrinter(invoice, new PlayCatalog(plays), mode, euros).statement();
+            assertEquals(String.format("Statement for BigCo%n  Hamlet: %s (55 seats)%nAmount owed is %s%n"
+                    + "You earned 25 credits%n", euros.format(65000), euros.format(65000)), result);
+        }
+    }
+}
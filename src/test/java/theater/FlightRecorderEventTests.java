@@ -0,0 +1,112 @@
+package theater;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+
+public class FlightRecorderEventTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    private List<RecordedEvent> record(Recording recording, Runnable work) throws IOException {
+        recording.start();
+        work.run();
+        recording.stop();
+        Path file = folder.newFile().toPath();
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> result = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void statementAndPricingEventsTest() throws IOException {
+        Map<String, Play> plays = TestData.plays();
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55), new Performance("as-like", 35)));
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("theater.StatementRendered").withThreshold(Duration.ZERO);
+            recording.enable("theater.InvoicePriced").withThreshold(Duration.ZERO);
+            events = record(recording, () -> {
+                new StatementPrinter(invoice, plays).statement();
+                new HTMLStatementPrinter(invoice, plays).createStatementData();
+            });
+        }
+
+        List<RecordedEvent> rendered = named(events, "theater.StatementRendered");
+        assertEquals(1, rendered.size());
+        assertEquals("BigCo", rendered.get(0).getString("customer"));
+        assertEquals("text", rendered.get(0).getString("format"));
+        assertEquals(2, rendered.get(0).getInt("performances"));
+        assertEquals(123000, rendered.get(0).getLong("totalAmount"));
+        List<RecordedEvent> priced = named(events, "theater.InvoicePriced");
+        assertEquals(1, priced.size());
+        assertEquals(123000, priced.get(0).getLong("totalAmount"));
+        assertEquals(37, priced.get(0).getLong("totalVolumeCredits"));
+    }
+
+    @Test
+    public void fastStatementsAreNotRecordedByDefaultTest() throws IOException {
+        Map<String, Play> plays = TestData.plays();
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55)));
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("theater.StatementRendered");
+            events = record(recording, () -> new StatementPrinter(invoice, plays).statement());
+        }
+
+        assertEquals(0, named(events, "theater.StatementRendered").size());
+    }
+
+    @Test
+    public void unknownTypeAndBatchEventsTest() throws IOException {
+        List<Invoice> invoices = List.of(
+                new Invoice("A", List.of(new Performance("hamlet", 10))),
+                new Invoice("B", List.of(new Performance("macbeth", 10), new Performance("hamlet", 10))));
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("theater.UnknownPlayType");
+            recording.enable("theater.BatchCompleted");
+            events = record(recording, () -> {
+                assertThrows(RuntimeException.class, () -> new Play("Cats", "musical"));
+                try {
+                    new BatchStatementGenerator(TestData.plays()).generate(invoices);
+                }
+                catch (InterruptedException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            });
+        }
+
+        List<RecordedEvent> unknown = named(events, "theater.UnknownPlayType");
+        assertEquals(1, unknown.size());
+        assertEquals("musical", unknown.get(0).getString("type"));
+        List<RecordedEvent> batches = named(events, "theater.BatchCompleted");
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).getInt("invoices"));
+        assertEquals(1, batches.get(0).getInt("failures"));
+        assertEquals(3, batches.get(0).getLong("performances"));
+    }
+}
@@ -1,9 +1,17 @@
 package theater;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 
@@ -22,44 +30,65 @@ public class HTMLPrinterTests {
         return "";
     }
 
-    // uncomment the test below if you write the HTMLStatementPrinter class in the optional task
-//    @Test
-//    public void exampleHTMLStatementTest() {
-//
-//        String expected = loadString("HTMLStatementExample.html");
-//
-//        JSONObject a = new JSONObject(loadString("plays.json"));
-//
-//        Map<String, Play> plays = new HashMap<>();
-//
-//        for (String s : a.keySet()) {
-//            JSONObject play = (JSONObject) a.get(s);
-//            plays.put(s, new Play(play.getString("name"), play.getString("type")));
-//        }
-//
-//        JSONArray ja = new JSONArray(loadString("invoices.json"));
-//
-//        for (Object jo : ja) {
-//            JSONObject jinvoice = (JSONObject) jo;
-//            String customer = jinvoice.getString("customer");
-//            JSONArray jperformances = jinvoice.getJSONArray("performances");
-//            List<Performance> performances = new ArrayList<>();
-//            for (Object s : jperformances) {
-//                JSONObject performance = (JSONObject) s;
-//                performances.add(new Performance(performance.getString("playID"),
-//                        performance.getInt("audience")));
-//            }
-//
-//            Invoice invoice = new Invoice(customer, performances);
-//
-//            StatementPrinter statementPrinter = new HTMLStatementPrinter(invoice, plays);
-//            String result = statementPrinter.statement();
-//            // ensure consistent line endings are being used
-//            result = result.replace("\r\n", "\n");
-//            expected = expected.replace("\r\n", "\n");
-//
-//            assertEquals(String.format("Actual output:%n%s%nExpected:%s", result, expected), expected, result);
-//        }
-//
-//    }
+    @Test
+    public void exampleHTMLStatementTest() {
+
+        String expected = loadString("HTMLStatementExample.html");
+
+        JSONObject a = new JSONObject(loadString("plays.json"));
+
+        Map<String, Play> plays = new HashMap<>();
+
+        for (String s : a.keySet()) {
+            JSONObject play = (JSONObject) a.get(s);
+            plays.put(s, new Play(play.getString("name"), play.getString("type")));
+        }
+
+        JSONArray ja = new JSONArray(loadString("invoices.json"));
+
+        for (Object jo : ja) {
+            JSONObject jinvoice = (JSONObject) jo;
+            String customer = jinvoice.getString("customer");
+            JSONArray jperformances = jinvoice.getJSONArray("performances");
+            List<Performance> performances = new ArrayList<>();
+            for (Object s : jperformances) {
+                JSONObject performance = (JSONObject) s;
+                performances.add(new Performance(performance.getString("playID"),
+                        performance.getInt("audience")));
+            }
+
+            Invoice invoice = new Invoice(customer, performances);
+
+            StatementPrinter statementPrinter = new HTMLStatementPrinter(invoice, plays);
+            String result = statementPrinter.statement();
+            // ensure consistent line endings are being used
+            result = result.replace("\r\n", "\n");
+            expected = expected.replace("\r\n", "\n");
+
+            assertEquals(String.format("Actual output:%n%s%nExpected:%s", result, expected), expected, result);
+        }
+
+    }
+
+    @Test
+    public void streamedHTMLMatchesStatementTest() throws IOException {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("r&j", new Play("Romeo & <Juliet> \"Ünïcødé\" €5 🎭", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            performances.add(new Performance(i % 2 == 0 ? "r&j" : "as-like", i % 70));
+        }
+        StatementPrinter printer = new HTMLStatementPrinter(new Invoice("O'Brien & Co", performances), plays);
+
+        String statement = printer.statement();
+        assertTrue(statement.startsWith("<h1>Statement for O&#39;Brien &amp; Co</h1>"));
+        assertTrue(statement.contains("<td>Romeo &amp; &lt;Juliet&gt; &quot;Ünïcødé&quot; €5 🎭</td>"));
+
+        for (Charset charset : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            printer.writeStatement(out, charset);
+            assertEquals(charset.name(), statement, out.toString(charset));
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+
+public class IncrementalStatementTests {
+
+    @Test
+    public void emptyStatementTest() {
+        Map<String, Play> plays = TestData.plays();
+        IncrementalStatement statement = new IncrementalStatement("BigCo", new PlayCatalog(plays));
+
+        assertEquals(0, statement.size());
+        assertEquals(new StatementPrinter(new Invoice("BigCo", List.of()), plays).statement(),
+                statement.statement());
+    }
+
+    @Test
+    public void matchesFreshStatementAfterEveryChangeTest() {
+        Map<String, Play> plays = TestData.plays();
+        String[] ids = {"hamlet", "as-like", "henry-v", "winters-tale"};
+        IncrementalStatement statement = new IncrementalStatement("BigCo", new PlayCatalog(plays));
+        List<Performance> sold = new ArrayList<>();
+        Random random = new Random(13);
+
+        for (int i = 0; i < 500; i++) {
+            if (!sold.isEmpty() && random.nextInt(3) == 0) {
+                Performance refund = sold.remove(random.nextInt(sold.size()));
+                assertTrue(statement.removePerformance(refund));
+            }
+            else {
+                Performance sale = new Performance(ids[random.nextInt(ids.length)], random.nextInt(80));
+                sold.add(sale);
+                statement.addPerformance(sale);
+            }
+            StatementPrinter printer = new StatementPrinter(new Invoice("BigCo", sold), plays);
+            assertEquals(printer.statement(), statement.statement());
+            assertEquals(printer.getTotalAmountExact(), statement.getTotalAmount());
+            assertEquals(printer.getTotalVolumeCredits(), statement.getTotalVolumeCredits());
+        }
+        assertEquals(sold, statement.getInvoice().getPerformances());
+    }
+
+    @Test
+    public void rejectsUnknownAndDuplicatePerformancesTest() {
+        IncrementalStatement statement = new IncrementalStatement("BigCo", TestData.catalog());
+        Performance performance = new Performance("hamlet", 55);
+        statement.addPerformance(performance);
+
+        assertThrows(IllegalArgumentException.class, () -> statement.addPerformance(performance));
+        assertThrows(IllegalArgumentException.class, () -> statement.addPerformance(new Performance("macbeth", 1)));
+        assertFalse(statement.removePerformance(new Performance("hamlet", 55)));
+        assertEquals(1, statement.size());
+    }
+}
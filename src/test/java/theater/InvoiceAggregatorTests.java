@@ -0,0 +1,129 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+
+public class InvoiceAggregatorTests {
+
+    private static List<Invoice> invoices(PlayCatalog catalog, int count) {
+        String[] ids = {"hamlet", "othello", "as-like", "henry-v", "macbeth"};
+        Random random = new Random(19);
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Performance> performances = new ArrayList<>();
+            for (int j = random.nextInt(20); j > 0; j--) {
+                String id = ids[random.nextInt(ids.length)];
+                int audience = random.nextInt(100);
+                // half are resolved through the catalog, half are looked up by id
+                performances.add(random.nextBoolean() ? catalog.performance(id, audience)
+                        : new Performance(id, audience));
+            }
+            invoices.add(new Invoice("customer-" + random.nextInt(50), performances));
+        }
+        return invoices;
+    }
+
+    @Test
+    public void aggregatesMatchPerInvoiceTotalsTest() {
+        Map<String, Play> plays = TestData.plays();
+        PlayCatalog catalog = new PlayCatalog(plays);
+        List<Invoice> invoices = invoices(catalog, 2_000);
+
+        InvoiceAggregator aggregator = new InvoiceAggregator(catalog);
+        invoices.forEach(aggregator::add);
+
+        Map<String, long[]> expectedByPlay = new TreeMap<>();
+        Map<String, long[]> expectedByType = new HashMap<>();
+        Map<String, long[]> expectedByCustomer = new HashMap<>();
+        long unknown = 0;
+        for (Invoice invoice : invoices) {
+            for (Performance performance : invoice.getPerformances()) {
+                Play play = plays.get(performance.getPlayID());
+                if (play == null) {
+                    unknown++;
+                    continue;
+                }
+                long[] values = {1, play.getCalculator().amountFor(performance.getAudience()),
+                        play.getCalculator().volumeCredits(performance.getAudience()), performance.getAudience()};
+                for (Map<String, long[]> expected : List.of(expectedByPlay, expectedByType, expectedByCustomer)) {
+                    String key = expected == expectedByPlay ? performance.getPlayID()
+                            : expected == expectedByType ? play.getType() : invoice.getCustomer();
+                    long[] totals = expected.computeIfAbsent(key, k -> new long[4]);
+                    for (int i = 0; i < 4; i++) {
+                        totals[i] += values[i];
+                    }
+                }
+            }
+        }
+
+        assertEquals(unknown, aggregator.getUnknownPerformances());
+        assertEquals(new ArrayList<>(expectedByPlay.keySet()), new ArrayList<>(aggregator.byPlay().keySet()));
+        assertTotals(expectedByPlay, aggregator.byPlay());
+        assertTotals(expectedByType, aggregator.byType());
+        assertTotals(expectedByCustomer, aggregator.byCustomer());
+    }
+
+    private static void assertTotals(Map<String, long[]> expected, Map<String, PerformanceAggregate> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, long[]> entry : expected.entrySet()) {
+            PerformanceAggregate aggregate = actual.get(entry.getKey());
+            assertEquals(entry.getValue()[0], aggregate.getPerformances());
+            assertEquals(entry.getValue()[1], aggregate.getTotalAmount());
+            assertEquals(entry.getValue()[2], aggregate.getTotalVolumeCredits());
+            assertEquals(entry.getValue()[3], aggregate.getTotalAudience());
+        }
+    }
+
+    @Test
+    public void parallelAggregationEqualsSequentialTest() {
+        PlayCatalog catalog = TestData.catalog();
+        List<Invoice> invoices = invoices(catalog, 5_000);
+
+        InvoiceAggregator sequential = InvoiceAggregator.aggregate(invoices.stream(), catalog);
+        InvoiceAggregator parallel = InvoiceAggregator.aggregate(invoices.parallelStream(), catalog);
+
+        assertEquals(describe(sequential.byPlay()), describe(parallel.byPlay()));
+        assertEquals(describe(sequential.byType()), describe(parallel.byType()));
+        assertEquals(new TreeMap<>(describe(sequential.byCustomer())), new TreeMap<>(describe(parallel.byCustomer())));
+        assertEquals(sequential.getUnknownPerformances(), parallel.getUnknownPerformances());
+    }
+
+    private static Map<String, String> describe(Map<String, PerformanceAggregate> aggregates) {
+        return aggregates.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+                entry -> entry.getValue().toString(), (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @Test
+    public void audienceRangeTest() {
+        PlayCatalog catalog = TestData.catalog();
+        InvoiceAggregator aggregator = new InvoiceAggregator(catalog);
+        aggregator.add(new Invoice("BigCo", List.of(new Performance("hamlet", 55),
+                new Performance("othello", 40), new Performance("hamlet", 10))));
+
+        PerformanceAggregate tragedy = aggregator.byType().get("tragedy");
+        assertEquals(3, tragedy.getPerformances());
+        assertEquals(10, tragedy.getMinAudience());
+        assertEquals(55, tragedy.getMaxAudience());
+        assertEquals(35.0, tragedy.getAverageAudience(), 0.0);
+        // 55, 40 and 10 seats earn 25, 10 and 0 credits
+        assertEquals(0, tragedy.getMinVolumeCredits());
+        assertEquals(25, tragedy.getMaxVolumeCredits());
+        assertEquals(35.0 / 3, tragedy.getAverageVolumeCredits(), 1e-9);
+        assertThrows(IllegalArgumentException.class,
+                () -> aggregator.merge(new InvoiceAggregator(TestData.catalog())));
+    }
+
+    @Test
+    public void emptyGroupAveragesAreZeroTest() {
+        PerformanceAggregate empty = new PerformanceAggregate(0, 0, 0, 0, 0, 0, 0, 0);
+
+        assertEquals(0.0, empty.getAverageAudience(), 0.0);
+        assertEquals(0.0, empty.getAverageVolumeCredits(), 0.0);
+    }
+}
@@ -0,0 +1,228 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class InvoiceJournalTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    private static Invoice invoice(int i) {
+        return new Invoice("Customer" + i, List.of(
+                new Performance("hamlet", i % 60), new Performance("as-like", i % 45)));
+    }
+
+    private static Map<Long, String> replay(Path directory, long fromOffset) throws IOException {
+        Map<Long, String> statements = new LinkedHashMap<>();
+        new JournalReplayer(directory).replay(fromOffset,
+                (offset, printer) -> statements.put(offset, printer.statement()));
+        return statements;
+    }
+
+    @Test
+    public void replayFromOffsetAcrossSegmentsTest() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("journal");
+        PlayCatalog catalog = TestData.catalog();
+        try (InvoiceJournal journal = new InvoiceJournal(directory, catalog, 512)) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, journal.append(invoice(i)));
+            }
+            journal.sync();
+            assertEquals(100, journal.getDurableOffset());
+        }
+        assertTrue(JournalSegment.list(directory).size() > 5);
+
+        Map<Long, String> statements = replay(directory, 37);
+        assertEquals(63, statements.size());
+        for (long offset = 37; offset < 100; offset++) {
+            assertEquals(new StatementPrinter(invoice((int) offset), catalog).statement(), statements.get(offset));
+        }
+        assertEquals(100, new JournalReplayer(directory).replay(250, (offset, printer) -> fail()));
+    }
+
+    @Test
+    public void catalogVersionsAreReplayedTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        Map<String, Play> renamed = TestData.plays();
+        renamed.put("hamlet", new Play("Hamlet, Prince of Denmark", "tragedy"));
+        try (InvoiceJournal journal = new InvoiceJournal(directory, TestData.catalog())) {
+            journal.append(invoice(1));
+            journal.appendCatalog(new PlayCatalog(renamed));
+            journal.append(invoice(2));
+        }
+        // reopening with the latest catalog continues it without a new record
+        try (InvoiceJournal journal = new InvoiceJournal(directory, new PlayCatalog(renamed))) {
+            assertEquals(2, journal.getNextOffset());
+            journal.append(new Invoice("Unknown", List.of(new Performance("macbeth", 40))));
+        }
+
+        Map<Long, String> statements = new LinkedHashMap<>();
+        List<RuntimeException> failures = new ArrayList<>();
+        new JournalReplayer(directory).replay(0, (offset, printer) -> {
+            try {
+                statements.put(offset, printer.statement());
+            }
+            catch (RuntimeException exception) {
+                failures.add(exception);
+            }
+        });
+        assertTrue(statements.get(0L).contains("  Hamlet: "));
+        assertTrue(statements.get(1L).contains("  Hamlet, Prince of Denmark: "));
+        assertEquals(1, failures.size());
+    }
+
+    @Test
+    public void tornTailIsCutOffTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        PlayCatalog catalog = TestData.catalog();
+        try (InvoiceJournal journal = new InvoiceJournal(directory, catalog)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(invoice(i));
+            }
+        }
+        Path segment = JournalSegment.path(directory, 0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // the last invoice is cut short by a crash
+            channel.truncate(channel.size() - 3);
+        }
+        assertEquals(9, replay(directory, 0).size());
+
+        try (InvoiceJournal journal = new InvoiceJournal(directory, catalog)) {
+            assertEquals(9, journal.getNextOffset());
+            assertEquals(9, journal.append(invoice(42)));
+        }
+        Map<Long, String> statements = replay(directory, 8);
+        assertEquals(2, statements.size());
+        assertEquals(new StatementPrinter(invoice(42), catalog).statement(), statements.get(9L));
+    }
+
+    @Test
+    public void corruptionBeforeTheEndIsReportedTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (InvoiceJournal journal = new InvoiceJournal(directory, TestData.catalog(), 256)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(invoice(i));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(JournalSegment.path(directory, 0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), channel.size() - 2);
+        }
+        try {
+            replay(directory, 0);
+            fail("expected the damaged segment to be reported");
+        }
+        catch (IOException exception) {
+            assertTrue(exception.getMessage().contains("damaged"));
+        }
+    }
+
+    @Test
+    public void damagedCatalogRecordIsReportedTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (InvoiceJournal journal = new InvoiceJournal(directory, TestData.catalog())) {
+            journal.append(invoice(1));
+        }
+        Path segment = JournalSegment.path(directory, 0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // inside the catalog record, with the invoice record still after it
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), JournalSegment.HEADER_SIZE + 12);
+        }
+        try {
+            new InvoiceJournal(directory, TestData.catalog()).close();
+            fail("expected the damaged segment to be reported");
+        }
+        catch (IOException exception) {
+            assertTrue(exception.getMessage().contains("damaged"));
+        }
+        assertTrue(Files.exists(segment));
+    }
+
+    @Test
+    public void replayBeforeTheOldestSegmentIsReportedTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (InvoiceJournal journal = new InvoiceJournal(directory, TestData.catalog(), 256)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(invoice(i));
+            }
+        }
+        List<Long> baseOffsets = JournalSegment.list(directory);
+        Files.delete(JournalSegment.path(directory, 0));
+        try {
+            replay(directory, 0);
+            fail("expected the missing invoices to be reported");
+        }
+        catch (IOException exception) {
+            assertEquals("journal is missing invoices 0 to " + (baseOffsets.get(1) - 1), exception.getMessage());
+        }
+        assertEquals(20 - baseOffsets.get(1), replay(directory, baseOffsets.get(1)).size());
+    }
+
+    @Test
+    public void interruptedSyncIsNotDurableTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        InvoiceJournal journal = new InvoiceJournal(directory, TestData.catalog());
+        long offset = journal.append(invoice(1));
+        Thread.currentThread().interrupt();
+        try {
+            journal.sync(offset);
+            fail("expected the interrupted sync to fail");
+        }
+        catch (ClosedByInterruptException exception) {
+            // expected
+        }
+        finally {
+            Thread.interrupted();
+        }
+        assertEquals(0, journal.getDurableOffset());
+        assertThrows(ClosedChannelException.class, () -> journal.append(invoice(2)));
+    }
+
+    @Test
+    public void concurrentAppendsShareSyncsTest() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (InvoiceJournal journal = new InvoiceJournal(directory, TestData.catalog(), 4096)) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        long offset = journal.append(invoice(i));
+                        journal.sync(offset);
+                        assertTrue(journal.getDurableOffset() > offset);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            assertEquals(1000, journal.getNextOffset());
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(1000, replay(directory, 0).size());
+    }
+}
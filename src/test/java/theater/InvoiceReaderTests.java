@@ -0,0 +1,104 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+
+public class InvoiceReaderTests {
+
+    private static Reader resource(String path) {
+        return new InputStreamReader(Objects.requireNonNull(InvoiceReaderTests.class
+                .getClassLoader()
+                .getResourceAsStream(path)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void exampleStatementFromStreamingReadersTest() throws IOException {
+        assertStatements("plays.json", "invoices.json", "ExampleStatement.txt");
+        assertStatements("new_plays.json", "new_invoices.json", "ExampleStatementWithNewPlays.txt");
+    }
+
+    private static void assertStatements(String playsPath, String invoicesPath, String expectedPath)
+            throws IOException {
+        String expected = TestData.loadString(expectedPath).replace("\r\n", "\n");
+        Map<String, Play> plays;
+        try (Reader reader = resource(playsPath)) {
+            plays = PlayCatalogReader.read(reader);
+        }
+        int count = 0;
+        try (InvoiceReader invoices = new InvoiceReader(resource(invoicesPath))) {
+            for (Invoice invoice : invoices) {
+                String result = new StatementPrinter(invoice, plays).statement().replace("\r\n", "\n");
+                assertEquals(expected, result);
+                count++;
+            }
+        }
+        assertEquals(1, count);
+    }
+
+    @Test
+    public void unknownFieldsAndEscapesTest() {
+        String json = "[ {\"id\": 7, \"customer\": \"Big\\\"Co\\u00e9\", \"tags\": [1, {\"a\": null}, true],"
+                + " \"performances\": [{\"audience\": -3, \"playID\": \"ham\\/let\", \"note\": \"x\"}]},"
+                + " {\"customer\": \"Empty\", \"performances\": []} ]";
+        InvoiceReader invoices = new InvoiceReader(new StringReader(json));
+
+        Invoice first = invoices.next();
+        assertEquals("Big\"Coé", first.getCustomer());
+        assertEquals("ham/let", first.getPerformances().get(0).getPlayID());
+        assertEquals(-3, first.getPerformances().get(0).getAudience());
+        Invoice second = invoices.next();
+        assertEquals("Empty", second.getCustomer());
+        assertEquals(0, second.getPerformances().size());
+        assertFalse(invoices.hasNext());
+    }
+
+    @Test
+    public void malformedInputFailsTest() {
+        InvoiceReader invoices = new InvoiceReader(new StringReader("[{\"customer\": \"BigCo\" \"performances\": []}]"));
+        try {
+            invoices.next();
+            fail("expected malformed JSON to be rejected");
+        }
+        catch (UncheckedIOException exception) {
+            assertEquals("malformed JSON at character 22: expected ','", exception.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void contentAfterTheArrayFailsTest() {
+        InvoiceReader invoices = new InvoiceReader(new StringReader("[{\"customer\": \"BigCo\"}] []"));
+        invoices.next();
+        try {
+            invoices.hasNext();
+            fail("expected trailing content to be rejected");
+        }
+        catch (UncheckedIOException exception) {
+            assertEquals("malformed JSON at character 24: expected end of input", exception.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void invoiceWithoutCustomerFailsTest() {
+        InvoiceReader invoices = new InvoiceReader(new StringReader("[{\"performances\": []}]"));
+        try {
+            invoices.next();
+            fail("expected an invoice without a customer to be rejected");
+        }
+        catch (UncheckedIOException exception) {
+            assertEquals("malformed JSON at character 20: invoice has no customer",
+                    exception.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+
+public class PerformanceCalculatorTests {
+
+    @Test
+    public void playResolvesCalculatorForTypeTest() {
+        assertSame(TragedyCalculator.INSTANCE, new Play("Hamlet", "tragedy").getCalculator());
+        assertSame(ComedyCalculator.INSTANCE, new Play("As You Like It", "comedy").getCalculator());
+        assertSame(HistoryCalculator.INSTANCE, new Play("Henry V", "history").getCalculator());
+        assertSame(PastoralCalculator.INSTANCE, new Play("As You Like It", "pastoral").getCalculator());
+    }
+
+    @Test
+    public void unknownTypeFailsWhenPlayIsCreatedTest() {
+        try {
+            new Play("Cats", "musical");
+            fail("expected an unknown play type to be rejected");
+        }
+        catch (RuntimeException exception) {
+            assertEquals("unknown type: musical", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void calculatorsMatchExampleStatementsTest() {
+        assertEquals(65000, TragedyCalculator.INSTANCE.amountFor(55));
+        assertEquals(25, TragedyCalculator.INSTANCE.volumeCredits(55));
+        assertEquals(58000, ComedyCalculator.INSTANCE.amountFor(35));
+        assertEquals(12, ComedyCalculator.INSTANCE.volumeCredits(35));
+        assertEquals(53000, HistoryCalculator.INSTANCE.amountFor(53));
+        assertEquals(33, HistoryCalculator.INSTANCE.volumeCredits(53));
+        assertEquals(127500, PastoralCalculator.INSTANCE.amountFor(55));
+        assertEquals(62, PastoralCalculator.INSTANCE.volumeCredits(55));
+    }
+
+    @Test
+    public void amountOverflowIsDetectedTest() {
+        for (String type : new String[] {"tragedy", "comedy", "history", "pastoral"}) {
+            AbstractPerformanceCalculator calculator = AbstractPerformanceCalculator.createPerformanceCalculator(type);
+            try {
+                calculator.amountFor(50_000_000);
+                fail("expected the amount of a " + type + " to overflow");
+            }
+            catch (ArithmeticException expected) {
+                // the amount does not fit in an int
+            }
+        }
+    }
+
+    @Test
+    public void batchPricerOverflowMatchesCalculatorsTest() {
+        for (String type : new String[] {"tragedy", "comedy", "history", "pastoral"}) {
+            AbstractPerformanceCalculator calculator = AbstractPerformanceCalculator.createPerformanceCalculator(type);
+            // the largest audience the calculator can price
+            int low = 0;
+            int high = Integer.MAX_VALUE;
+            while (low < high) {
+                int middle = (int) (((long) low + high + 1) / 2);
+                try {
+                    calculator.amountFor(middle);
+                    low = middle;
+                }
+                catch (ArithmeticException exception) {
+                    high = middle - 1;
+                }
+            }
+            BatchPricer pricer = BatchPricer.forType(type);
+            int[] amounts = new int[1];
+
+            pricer.amounts(new int[] {low}, amounts, 1);
+            assertEquals(type, calculator.amountFor(low), amounts[0]);
+            try {
+                pricer.amounts(new int[] {low + 1}, amounts, 1);
+                fail("expected the batch amount of a " + type + " to overflow");
+            }
+            catch (ArithmeticException expected) {
+                // the amount does not fit in an int
+            }
+        }
+    }
+
+    @Test
+    public void batchPricerRejectsNegativeAudiencesTheCalculatorRejectsTest() {
+        // 300 cents per member: the smallest comedy audience whose amount fits in an int
+        int smallest = Integer.MIN_VALUE / Constants.COMEDY_AMOUNT_PER_AUDIENCE;
+        BatchPricer pricer = BatchPricer.forType("comedy");
+        int[] amounts = new int[2];
+
+        pricer.amounts(new int[] {smallest, 55}, amounts, 2);
+        assertEquals(ComedyCalculator.INSTANCE.amountFor(smallest), amounts[0]);
+        try {
+            pricer.amounts(new int[] {55, smallest - 1}, amounts, 2);
+            fail("expected the batch amount of a negative comedy audience to overflow");
+        }
+        catch (ArithmeticException expected) {
+            // the amount does not fit in an int
+        }
+        pricer = BatchPricer.forType("pastoral");
+        int[] credits = new int[1];
+        pricer.volumeCredits(new int[] {Integer.MIN_VALUE}, credits, 1);
+        assertEquals(PastoralCalculator.INSTANCE.volumeCredits(Integer.MIN_VALUE), credits[0]);
+    }
+
+    @Test
+    public void defaultPricingTableMatchesCalculatorsTest() {
+        PricingTable.getDefault().verify();
+        new PricingTable(0).verify();
+    }
+
+    @Test
+    public void pricingTableGivesSameStatementTest() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        plays.put("winters-tale", new Play("The Winter's Tale", "pastoral"));
+        List<Performance> performances = new ArrayList<>();
+        for (String playID : plays.keySet()) {
+            for (int audience : new int[] {0, 19, 20, 21, 30, 31, 55, 100, 101, 5000}) {
+                performances.add(new Performance(playID, audience));
+            }
+        }
+        Invoice invoice = new Invoice("BigCo", performances);
+
+        assertEquals(new StatementPrinter(invoice, plays).statement(),
+                new StatementPrinter(invoice, new PricingTable(100).apply(plays)).statement());
+    }
+
+    @Test
+    public void batchPricerMatchesCalculatorsTest() {
+        int[] audiences = new int[20_000];
+        for (int i = 0; i < audiences.length; i++) {
+            audiences[i] = i - 100;
+        }
+        int[] amounts = new int[audiences.length];
+        int[] credits = new int[audiences.length];
+        for (String type : new String[] {"tragedy", "comedy", "history", "pastoral"}) {
+            AbstractPerformanceCalculator calculator = AbstractPerformanceCalculator.createPerformanceCalculator(type);
+
+            BatchPricer.Totals totals = BatchPricer.forType(type).price(audiences, amounts, credits, audiences.length);
+
+            long totalAmount = 0;
+            long totalCredits = 0;
+            for (int i = 0; i < audiences.length; i++) {
+                assertEquals(type + " " + audiences[i], calculator.amountFor(audiences[i]), amounts[i]);
+                assertEquals(type + " " + audiences[i], calculator.volumeCredits(audiences[i]), credits[i]);
+                totalAmount += amounts[i];
+                totalCredits += credits[i];
+            }
+            assertEquals(totalAmount, totals.getTotalAmount());
+            assertEquals(totalCredits, totals.getTotalVolumeCredits());
+        }
+    }
+}
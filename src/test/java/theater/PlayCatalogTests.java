@@ -0,0 +1,67 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+public class PlayCatalogTests {
+
+    @Test
+    public void ordinalsFollowSortedPlayIdsTest() {
+        PlayCatalog catalog = TestData.catalog();
+
+        assertEquals(5, catalog.size());
+        assertEquals(0, catalog.ordinalOf("as-like"));
+        assertEquals(1, catalog.ordinalOf("hamlet"));
+        assertEquals(2, catalog.ordinalOf("henry-v"));
+        assertEquals(3, catalog.ordinalOf("othello"));
+        assertEquals(4, catalog.ordinalOf("winters-tale"));
+        assertEquals(PlayCatalog.UNKNOWN, catalog.ordinalOf("macbeth"));
+        assertEquals("hamlet", catalog.idOf(1));
+    }
+
+    @Test
+    public void performancesResolveThroughOrdinalTest() {
+        Map<String, Play> plays = TestData.plays();
+        PlayCatalog catalog = new PlayCatalog(plays);
+
+        Performance resolved = catalog.performance(new String("othello"), 40);
+        assertEquals(3, resolved.getPlayOrdinal());
+        assertSame(catalog.idOf(3), resolved.getPlayID());
+        assertSame(plays.get("othello"), catalog.get(resolved));
+
+        Performance plain = new Performance("hamlet", 55);
+        assertSame(plays.get("hamlet"), catalog.get(plain));
+        assertNull(catalog.get(new Performance("macbeth", 10)));
+    }
+
+    @Test
+    public void ordinalFromAnotherCatalogIsNotTrustedTest() {
+        Map<String, Play> others = new HashMap<>();
+        others.put("aaa", new Play("First", "history"));
+        others.put("hamlet", new Play("Other Hamlet", "tragedy"));
+        Performance foreign = new PlayCatalog(others).performance("aaa", 10);
+
+        PlayCatalog catalog = TestData.catalog();
+        assertNull(catalog.get(foreign));
+    }
+
+    @Test
+    public void statementWithCatalogMatchesMapTest() {
+        Map<String, Play> plays = TestData.plays();
+        PlayCatalog catalog = new PlayCatalog(plays);
+        String json = "[{\"customer\": \"BigCo\", \"performances\": [{\"playID\": \"hamlet\", \"audience\": 55},"
+                + " {\"playID\": \"as-like\", \"audience\": 35}, {\"playID\": \"othello\", \"audience\": 40}]}]";
+        Invoice invoice = new InvoiceReader(new StringReader(json), catalog).next();
+
+        assertEquals(1, invoice.getPerformances().get(0).getPlayOrdinal());
+        assertEquals(new StatementPrinter(invoice, plays).statement(),
+                new StatementPrinter(invoice, catalog).statement());
+    }
+}
@@ -0,0 +1,134 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementArchiveTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String text(ByteBuffer statement) {
+        return StandardCharsets.UTF_8.decode(statement).toString();
+    }
+
+    @Test
+    public void lookupByCustomerTest() throws IOException {
+        PlayCatalog catalog = TestData.catalog();
+        Path directory = folder.getRoot().toPath().resolve("archive");
+        Map<String, List<String>> expected = new HashMap<>();
+        try (StatementArchiveWriter writer = new StatementArchiveWriter(directory, 4096)) {
+            for (int i = 0; i < 1_000; i++) {
+                // customers sharing long prefixes, and several statements per customer
+                String customer = "Customer" + (i * 7 % 300);
+                String statement = new StatementPrinter(new Invoice(customer, List.of(
+                        new Performance("hamlet", i % 60), new Performance("as-like", i % 45))), catalog).statement();
+                writer.add(customer, statement);
+                expected.computeIfAbsent(customer, key -> new ArrayList<>()).add(statement);
+            }
+        }
+
+        StatementArchive archive = StatementArchive.open(directory);
+        assertEquals(1_000, archive.size());
+        for (Map.Entry<String, List<String>> entry : expected.entrySet()) {
+            List<String> statements = entry.getValue();
+            assertEquals(statements.get(statements.size() - 1), archive.getText(entry.getKey()));
+            List<ByteBuffer> all = archive.getAll(entry.getKey());
+            assertEquals(statements.size(), all.size());
+            for (int i = 0; i < statements.size(); i++) {
+                assertEquals(statements.get(i), text(all.get(i)));
+            }
+        }
+        ByteBuffer statement = archive.get("Customer7");
+        assertTrue(statement.isDirect() && statement.isReadOnly());
+        assertNull(archive.get("Customer"));
+        assertNull(archive.get("Customer300"));
+        assertNull(archive.get(""));
+        assertTrue(archive.getAll("Zed").isEmpty());
+    }
+
+    @Test
+    public void unusualCustomersTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<String> customers = List.of("", "a", "ab", "ab\0", "ab\0x", "￿", "Zoë", "Łódź Opera", "🎭");
+        try (StatementArchiveWriter writer = new StatementArchiveWriter(directory, 8)) {
+            for (String customer : customers) {
+                writer.add(customer, "Statement for " + customer + " ".repeat(customer.length() * 5));
+            }
+        }
+        StatementArchive archive = StatementArchive.open(directory);
+        for (String customer : customers) {
+            assertEquals("Statement for " + customer + " ".repeat(customer.length() * 5), archive.getText(customer));
+        }
+        assertNull(archive.get("ab\0\0"));
+    }
+
+    @Test
+    public void emptyArchiveTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        new StatementArchiveWriter(directory).close();
+        StatementArchive archive = StatementArchive.open(directory);
+        assertEquals(0, archive.size());
+        assertNull(archive.get("BigCo"));
+    }
+
+    @Test
+    public void rewriteKeepsOpenArchiveReadableTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (StatementArchiveWriter writer = new StatementArchiveWriter(directory, 64)) {
+            for (int i = 0; i < 20; i++) {
+                writer.add("Customer" + i, "first statement of customer " + i);
+            }
+        }
+        StatementArchive first = StatementArchive.open(directory);
+
+        try (StatementArchiveWriter writer = new StatementArchiveWriter(directory, 64)) {
+            for (int i = 0; i < 10; i++) {
+                writer.add("Customer" + i, "second statement " + i);
+            }
+            // the old archive can still be opened until the new one is closed
+            assertEquals(20, StatementArchive.open(directory).size());
+        }
+        StatementArchive second = StatementArchive.open(directory);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("first statement of customer " + i, first.getText("Customer" + i));
+        }
+        assertEquals(10, second.size());
+        assertEquals("second statement 3", second.getText("Customer3"));
+        assertNull(second.get("Customer15"));
+        // only the segments of the new archive are left
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.filter(file -> file.getFileName().toString().endsWith(".dat"))
+                    .allMatch(file -> StatementArchive.generationOf(file) == 1));
+        }
+    }
+
+    @Test
+    public void olderWriterKeepsNewerSegmentsTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        StatementArchiveWriter older = new StatementArchiveWriter(directory);
+        older.add("Customer", "older statement");
+        try (StatementArchiveWriter newer = new StatementArchiveWriter(directory)) {
+            newer.add("Customer", "newer statement");
+            // the older writer finishes first, while the newer one is still writing
+            older.close();
+            assertEquals("older statement", StatementArchive.open(directory).getText("Customer"));
+        }
+        assertEquals("newer statement", StatementArchive.open(directory).getText("Customer"));
+    }
+}
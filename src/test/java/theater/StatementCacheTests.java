@@ -0,0 +1,102 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementCacheTests {
+
+    private static Invoice invoice(String customer, int audience) {
+        return new Invoice(customer, List.of(new Performance("hamlet", audience), new Performance("as-like", 35)));
+    }
+
+    @Test
+    public void equalInvoicesHitTheCacheTest() {
+        Map<String, Play> plays = TestData.plays();
+        StatementCache cache = new StatementCache(plays, 10, 1 << 20);
+
+        String first = cache.statement(invoice("BigCo", 55));
+        String second = cache.statement(invoice("BigCo", 55));
+        String other = cache.statement(invoice("BigCo", 56));
+
+        assertSame(first, second);
+        assertEquals(new StatementPrinter(invoice("BigCo", 56), plays).statement(), other);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedTest() {
+        StatementCache cache = new StatementCache(TestData.catalog(), 2, 1 << 20);
+
+        cache.statement(invoice("A", 1));
+        cache.statement(invoice("B", 1));
+        cache.statement(invoice("A", 1));
+        cache.statement(invoice("C", 1));
+        cache.statement(invoice("A", 1));
+        cache.statement(invoice("B", 1));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void byteBoundIsRespectedTest() {
+        long oneEntry;
+        StatementCache probe = new StatementCache(TestData.plays(), 10, 1 << 20);
+        probe.statement(invoice("A", 1));
+        oneEntry = probe.getBytes();
+
+        StatementCache cache = new StatementCache(TestData.plays(), 10, oneEntry * 3 / 2);
+        cache.statement(invoice("A", 1));
+        cache.statement(invoice("B", 1));
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getBytes() <= oneEntry * 3 / 2);
+    }
+
+    @Test
+    public void changedPlayInvalidatesTest() {
+        Map<String, Play> plays = TestData.plays();
+        StatementCache cache = new StatementCache(plays, 10, 1 << 20);
+        cache.statement(invoice("BigCo", 55));
+
+        plays.put("hamlet", new Play("Hamlet", "comedy"));
+        String statement = cache.statement(invoice("BigCo", 55));
+
+        assertEquals(new StatementPrinter(invoice("BigCo", 55), plays).statement(), statement);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void swappedPlaysWithCollidingIdsInvalidateTest() {
+        // "Aa" and "BB" have the same String hash code, so only comparing the plays tells these maps apart
+        Play tragedy = new Play("Hamlet", "tragedy");
+        Play comedy = new Play("As You Like It", "comedy");
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("Aa", tragedy);
+        plays.put("BB", comedy);
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("Aa", 55)));
+        StatementCache cache = new StatementCache(plays, 10, 1 << 20);
+        cache.statement(invoice);
+
+        plays.put("Aa", comedy);
+        plays.put("BB", tragedy);
+        String statement = cache.statement(invoice);
+
+        assertEquals(new StatementPrinter(invoice, plays).statement(), statement);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getInvalidations());
+    }
+}
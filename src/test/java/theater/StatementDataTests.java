@@ -0,0 +1,58 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementDataTests {
+
+    private static Invoice invoice(int size) {
+        String[] ids = {"hamlet", "as-like", "henry-v", "winters-tale"};
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            performances.add(new Performance(ids[i % ids.length], i % 80));
+        }
+        return new Invoice("BigCo", performances);
+    }
+
+    @Test
+    public void dataHoldsPricedPerformancesTest() {
+        StatementPrinter printer = new StatementPrinter(new Invoice("BigCo", List.of(
+                new Performance("hamlet", 55), new Performance("as-like", 35))), TestData.plays());
+
+        StatementData data = printer.createStatementData();
+
+        assertEquals("BigCo", data.getCustomer());
+        assertEquals(2, data.size());
+        assertEquals("As You Like It", data.getPlayName(1));
+        assertEquals(35, data.getAudience(1));
+        assertEquals(65000, data.getAmount(0));
+        assertEquals(12, data.getVolumeCredits(1));
+        assertEquals(printer.getTotalAmount(), data.getTotalAmount());
+        assertEquals(printer.getTotalVolumeCredits(), data.getTotalVolumeCredits());
+    }
+
+    @Test
+    public void oneDataRendersAsEveryFormatTest() throws IOException {
+        Map<String, Play> plays = TestData.plays();
+        Invoice invoice = invoice(5_000);
+        StatementPrinter text = new StatementPrinter(invoice, plays);
+        StatementPrinter html = new HTMLStatementPrinter(invoice, plays);
+
+        StatementData data = text.createStatementData();
+
+        assertEquals(text.statement(), text.render(data));
+        assertEquals(html.statement(), html.render(data));
+        for (StatementPrinter printer : List.of(text, html)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            printer.writeStatement(data, out, StandardCharsets.UTF_8);
+            assertEquals(printer.statement(), out.toString(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+
+public class StatementMetricsTests {
+
+    private static Invoice invoice(int size) {
+        String[] ids = {"hamlet", "as-like"};
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            performances.add(new Performance(ids[i % ids.length], i % 80));
+        }
+        return new Invoice("BigCo", performances);
+    }
+
+    @Test
+    public void noopIsUsedByDefaultTest() {
+        assertSame(StatementMetrics.NOOP, new StatementPrinter(invoice(1), TestData.plays()).getMetrics());
+        assertSame(StatementMetrics.NOOP,
+                new StatementPrinter(invoice(1), TestData.plays(), RenderMode.DIRECT, null).getMetrics());
+    }
+
+    @Test
+    public void recordsStagesAndCountsTest() throws IOException {
+        RecordingStatementMetrics metrics = new RecordingStatementMetrics();
+        StatementPrinter printer = new StatementPrinter(invoice(2_000), TestData.plays(), RenderMode.DIRECT, metrics);
+        // another printer's listener is not involved
+        RecordingStatementMetrics other = new RecordingStatementMetrics();
+        new StatementPrinter(invoice(10), TestData.plays(), RenderMode.DIRECT, other).statement();
+
+        String statement = printer.statement();
+        StringWriter writer = new StringWriter();
+        printer.statement(writer);
+
+        assertEquals(statement, writer.toString());
+        assertEquals(2, metrics.getStatements());
+        assertEquals(4_000, metrics.getPerformances());
+        assertEquals(2L * statement.length(), metrics.getCharacters());
+        assertEquals(2, metrics.getStatementLatency().getCount());
+        for (StatementMetrics.Stage stage : StatementMetrics.Stage.values()) {
+            assertEquals(2, metrics.getStageLatency(stage).getCount());
+        }
+        assertEquals(0, metrics.getUnknownPlays());
+        assertEquals(1, other.getStatements());
+    }
+
+    @Test
+    public void everyRenderPathIsMeasuredTest() throws IOException {
+        Invoice invoice = invoice(100);
+        PlayCatalog catalog = TestData.catalog();
+        RecordingStatementMetrics metrics = new RecordingStatementMetrics();
+        StatementPrinter formatted =
+                new StatementPrinter(invoice, catalog, RenderMode.FORMAT, CurrencyFormatter.USD, metrics);
+        StatementPrinter html = new HTMLStatementPrinter(invoice, catalog, CurrencyFormatter.USD, metrics);
+
+        String text = formatted.statement();
+        String page = html.statement();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        html.writeStatement(bytes, StandardCharsets.UTF_8);
+        StatementData data = formatted.createStatementData();
+        String rendered = formatted.render(data);
+        String renderedPage = html.render(data);
+
+        assertEquals(5, metrics.getStatements());
+        assertEquals(500, metrics.getPerformances());
+        assertEquals(text.length() + page.length() + bytes.size() + rendered.length() + renderedPage.length(),
+                metrics.getCharacters());
+        // pricing is measured for the three statements priced by their printer and for the statement data
+        assertEquals(4, metrics.getStageLatency(StatementMetrics.Stage.PRICING).getCount());
+        assertEquals(5, metrics.getStageLatency(StatementMetrics.Stage.FORMATTING).getCount());
+    }
+
+    @Test
+    public void reportsUnknownPlaysTest() {
+        RecordingStatementMetrics metrics = new RecordingStatementMetrics();
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("macbeth", 10)));
+
+        for (RenderMode mode : RenderMode.values()) {
+            StatementPrinter printer = new StatementPrinter(invoice, TestData.plays(), mode, metrics);
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, printer::statement);
+            assertEquals("unknown play: macbeth", exception.getMessage());
+        }
+        HTMLStatementPrinter html = new HTMLStatementPrinter(invoice, TestData.plays(), metrics);
+        assertThrows(IllegalArgumentException.class, html::statement);
+        assertThrows(IllegalArgumentException.class, new StatementPrinter(invoice, TestData.plays())::createStatementData);
+        assertEquals(3, metrics.getUnknownPlays());
+        assertEquals(0, metrics.getStatements());
+    }
+
+    @Test
+    public void histogramPercentilesTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 0.001);
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 / 64);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 / 64);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+}
@@ -0,0 +1,151 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementPipelineTests {
+
+    /**
+     * Collects everything it is sent, asking for a fixed number of results up front.
+     */
+    private static final class CollectingSubscriber implements Flow.Subscriber<StatementResult> {
+        private final long initialRequest;
+        private final List<StatementResult> results = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        CollectingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(StatementResult item) {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            finished.countDown();
+        }
+    }
+
+
+    private static Invoice invoice(int i) {
+        return new Invoice("Customer" + i, List.of(
+                new Performance("hamlet", i % 60), new Performance("as-like", i % 45)));
+    }
+
+    @Test
+    public void statementsArriveInOrderTest() throws InterruptedException {
+        PlayCatalog catalog = TestData.catalog();
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            invoices.add(invoice(i));
+        }
+        invoices.set(17, new Invoice("Broken", List.of(new Performance("no-such-play", 10))));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CollectingSubscriber sink = new CollectingSubscriber(Long.MAX_VALUE);
+            new StatementPipeline(catalog, executor, 8, 3, 2)
+                    .process(StatementPipeline.fromIterable(invoices)).subscribe(sink);
+
+            assertTrue(sink.finished.await(30, TimeUnit.SECONDS));
+            assertNull(sink.error);
+            assertEquals(invoices.size(), sink.results.size());
+            for (int i = 0; i < invoices.size(); i++) {
+                StatementResult result = sink.results.get(i);
+                assertEquals(invoices.get(i), result.getInvoice());
+                assertEquals(i != 17, result.isSuccess());
+                if (i != 17) {
+                    assertEquals(new StatementPrinter(invoices.get(i), catalog).statement(), result.getStatement());
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void slowSubscriberHoldsBackSourceTest() {
+        AtomicInteger pulled = new AtomicInteger();
+        Iterable<Invoice> endless = () -> new Iterator<Invoice>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Invoice next() {
+                return invoice(pulled.getAndIncrement());
+            }
+        };
+        CollectingSubscriber sink = new CollectingSubscriber(1);
+        new StatementPipeline(TestData.catalog(), Runnable::run, 4, 2, 2)
+                .process(StatementPipeline.fromIterable(endless)).subscribe(sink);
+
+        // one buffer in each stage, plus the statement taken
+        assertEquals(1, sink.results.size());
+        assertEquals(2 * 4 + 1, pulled.get());
+
+        sink.subscription.request(3);
+        assertEquals(4, sink.results.size());
+        assertEquals(2 * 4 + 4, pulled.get());
+        assertEquals("Customer3", sink.results.get(3).getInvoice().getCustomer());
+
+        sink.subscription.cancel();
+        sink.subscription.request(10);
+        assertEquals(4, sink.results.size());
+        assertEquals(2 * 4 + 4, pulled.get());
+    }
+
+    @Test
+    public void submissionPublisherSourceTest() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CollectingSubscriber sink = new CollectingSubscriber(Long.MAX_VALUE);
+            try (SubmissionPublisher<Invoice> source = new SubmissionPublisher<>(executor, 16)) {
+                new StatementPipeline(TestData.catalog(), executor, 4, 1, 1).process(source).subscribe(sink);
+                for (int i = 0; i < 100; i++) {
+                    source.submit(invoice(i));
+                }
+            }
+
+            assertTrue(sink.finished.await(30, TimeUnit.SECONDS));
+            assertNull(sink.error);
+            assertEquals(100, sink.results.size());
+            assertEquals("Customer99", sink.results.get(99).getInvoice().getCustomer());
+            assertFalse(sink.results.stream().anyMatch(result -> !result.isSuccess()));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package theater;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class StatementRendererTests {
+
+    private static Map<String, Play> loadPlays(String path) {
+        JSONObject a = new JSONObject(TestData.loadString(path));
+        Map<String, Play> plays = new HashMap<>();
+        for (String s : a.keySet()) {
+            JSONObject play = (JSONObject) a.get(s);
+            plays.put(s, new Play(play.getString("name"), play.getString("type")));
+        }
+        return plays;
+    }
+
+    private static Invoice loadInvoice(String path) {
+        JSONObject jinvoice = new JSONArray(TestData.loadString(path)).getJSONObject(0);
+        List<Performance> performances = new ArrayList<>();
+        for (Object s : jinvoice.getJSONArray("performances")) {
+            JSONObject performance = (JSONObject) s;
+            performances.add(new Performance(performance.getString("playID"),
+                    performance.getInt("audience")));
+        }
+        return new Invoice(jinvoice.getString("customer"), performances);
+    }
+
+    @Test
+    public void bothModesMatchExampleStatementTest() {
+        String expected = TestData.loadString("ExampleStatement.txt").replace("\r\n", "\n");
+        Map<String, Play> plays = loadPlays("plays.json");
+        Invoice invoice = loadInvoice("invoices.json");
+
+        for (RenderMode mode : RenderMode.values()) {
+            String result = new StatementPrinter(invoice, plays, mode).statement().replace("\r\n", "\n");
+            assertEquals("mode " + mode, expected, result);
+        }
+    }
+
+    @Test
+    public void bothModesMatchNewPlaysStatementTest() {
+        Map<String, Play> plays = loadPlays("new_plays.json");
+        Invoice invoice = loadInvoice("new_invoices.json");
+
+        assertEquals(new StatementPrinter(invoice, plays, RenderMode.FORMAT).statement(),
+                new StatementPrinter(invoice, plays, RenderMode.DIRECT).statement());
+    }
+
+    @Test
+    public void totalsBeyondIntRangeTest() {
+        Map<String, Play> plays = Map.of("winters-tale", new Play("The Winter's Tale", "pastoral"));
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            performances.add(new Performance("winters-tale", 10_000));
+        }
+        for (RenderMode mode : RenderMode.values()) {
+            StatementPrinter printer = new StatementPrinter(new Invoice("BigCo", performances), plays, mode);
+
+            assertEquals(2_499_000_000L, printer.getTotalAmountExact());
+            assertTrue(printer.statement().contains("Amount owed is $24,990,000.00"));
+            try {
+                printer.getTotalAmount();
+                fail("expected the int total to overflow");
+            }
+            catch (ArithmeticException exception) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void noPerLineAllocationAfterWarmUpTest() throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<String, Play> plays = loadPlays("plays.json");
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            performances.add(new Performance(i % 2 == 0 ? "hamlet" : "as-like", i % 100));
+        }
+        StatementPrinter printer = new StatementPrinter(new Invoice("BigCo", performances), plays);
+        // pricing and writing are one pass, so nothing is allocated per line, not even by pricing
+        StringBuilder out = new StringBuilder(1 << 20);
+
+        for (int i = 0; i < 200; i++) {
+            out.setLength(0);
+            printer.statement(out);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        out.setLength(0);
+        printer.statement(out);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes for " + performances.size() + " lines",
+                allocated < performances.size());
+    }
+
+    @Test
+    public void writeStatementMatchesStatementTest() throws IOException {
+        Map<String, Play> plays = loadPlays("plays.json");
+        Invoice invoice = loadInvoice("invoices.json");
+
+        for (RenderMode mode : RenderMode.values()) {
+            StatementPrinter printer = new StatementPrinter(invoice, plays, mode);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            printer.writeStatement(out, StandardCharsets.UTF_8);
+            assertEquals("mode " + mode, printer.statement(), out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void streamedStatementUsesBoundedChunksTest() throws IOException {
+        Map<String, Play> plays = loadPlays("plays.json");
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            performances.add(new Performance(i % 2 == 0 ? "hamlet" : "as-like", i % 100));
+        }
+        StatementPrinter printer = new StatementPrinter(new Invoice("BigCo", performances), plays);
+        StringBuilder streamed = new StringBuilder();
+        int[] largestChunk = new int[1];
+        Appendable out = new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) {
+                largestChunk[0] = Math.max(largestChunk[0], csq.length());
+                streamed.append(csq);
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) {
+                return append(csq.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) {
+                return append(String.valueOf(c));
+            }
+        };
+
+        printer.statement(out);
+
+        assertEquals(printer.statement(), streamed.toString());
+        assertTrue("largest chunk " + largestChunk[0], largestChunk[0] < 16 * 1024);
+    }
+}
@@ -0,0 +1,155 @@
+package theater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementServerTests {
+
+    private static final String INVOICE = "{\"customer\": \"BigCo\", \"performances\": ["
+            + "{\"playID\": \"hamlet\", \"audience\": 55}, {\"playID\": \"as-like\", \"audience\": 35}]}";
+
+    private Map<String, Play> plays;
+    private StatementServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You \"Like\" It", "comedy"));
+        server = new StatementServer(new PlayCatalog(plays), 0);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    private String[] request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+                .openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        in.close();
+        return new String[] {String.valueOf(status), connection.getContentType(), text};
+    }
+
+    @Test
+    public void postStatementTest() throws IOException {
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55), new Performance("as-like", 35)));
+
+        for (int i = 0; i < 3; i++) {
+            String[] text = request("POST", "/statement", INVOICE);
+            assertEquals("200", text[0]);
+            assertEquals("text/plain; charset=utf-8", text[1]);
+            assertEquals(new StatementPrinter(invoice, plays).statement(), text[2]);
+        }
+        String[] html = request("POST", "/statement?format=html", INVOICE);
+        assertEquals("text/html; charset=utf-8", html[1]);
+        assertEquals(new HTMLStatementPrinter(invoice, plays).statement(), html[2]);
+    }
+
+    @Test
+    public void getPlaysTest() throws IOException {
+        String[] response = request("GET", "/plays", null);
+
+        assertEquals("200", response[0]);
+        assertEquals("application/json; charset=utf-8", response[1]);
+        assertEquals("{\"as-like\":{\"name\":\"As You \\\"Like\\\" It\",\"type\":\"comedy\"},"
+                + "\"hamlet\":{\"name\":\"Hamlet\",\"type\":\"tragedy\"}}", response[2]);
+    }
+
+    @Test
+    public void errorsTest() throws IOException {
+        assertEquals("400", request("POST", "/statement", "{\"customer\": ")[0]);
+        String[] unprocessable = request("POST", "/statement",
+                "{\"customer\": \"BigCo\", \"performances\": [{\"playID\": \"macbeth\", \"audience\": 1}]}");
+        assertEquals("422", unprocessable[0]);
+        assertEquals("cannot price invoice", unprocessable[2]);
+        assertEquals("405", request("GET", "/statement", null)[0]);
+        assertEquals("405", request("POST", "/plays", "{}")[0]);
+        assertEquals("404", request("GET", "/plays/hamlet", null)[0]);
+    }
+
+    @Test
+    public void trailingContentIsRejectedTest() throws IOException {
+        String[] response = request("POST", "/statement", INVOICE + " {}");
+
+        assertEquals("400", response[0]);
+        assertTrue(response[2], response[2].endsWith("expected end of input"));
+        assertEquals("200", request("POST", "/statement", INVOICE + " \n")[0]);
+    }
+
+    @Test
+    public void oversizedBodyIsRejectedTest() throws IOException {
+        StringBuilder padded = new StringBuilder("{\"customer\": \"BigCo\", \"note\": \"");
+        while (padded.length() <= 1 << 20) {
+            padded.append("0123456789abcdef");
+        }
+        padded.append("\", \"performances\": []}");
+
+        assertEquals("413", request("POST", "/statement", padded.toString())[0]);
+        assertEquals("200", request("POST", "/statement", INVOICE)[0]);
+    }
+
+    @Test
+    public void formatParameterIsMatchedExactlyTest() throws IOException {
+        assertEquals("text/html; charset=utf-8", request("POST", "/statement?a=1&format=html", INVOICE)[1]);
+        assertEquals("text/plain; charset=utf-8", request("POST", "/statement?format=htmlx", INVOICE)[1]);
+        assertEquals("text/plain; charset=utf-8", request("POST", "/statement?reformat=html", INVOICE)[1]);
+        assertEquals("text/plain; charset=utf-8", request("POST", "/statement?format=text&x=format=html", INVOICE)[1]);
+    }
+
+    @Test
+    public void stopWaitsForRequestsInProgressTest() throws Exception {
+        byte[] body = INVOICE.getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            // the request is in progress once the server reads the body, which is held back halfway
+            out.write(("POST /statement HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length
+                    + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            Thread.sleep(500);
+
+            Thread stopping = new Thread(() -> server.stop(30, TimeUnit.SECONDS));
+            stopping.start();
+            Thread.sleep(500);
+            assertTrue(stopping.isAlive());
+            assertEquals("503", request("POST", "/statement", INVOICE)[0]);
+
+            out.write(body, body.length / 2, body.length - body.length / 2);
+            out.flush();
+            String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            stopping.join(10_000);
+
+            assertTrue(response, response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.endsWith("You earned 37 credits" + System.lineSeparator()));
+            assertFalse(stopping.isAlive());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package theater;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Fixtures shared by the tests: a small play catalog with a play of every type, and test resources.
+ */
+final class TestData {
+
+    private TestData() {
+        // fixtures only
+    }
+
+    /**
+     * Returns a new, mutable map of two tragedies and a play of every other type, keyed by play id:
+     * hamlet, othello, as-like, henry-v and winters-tale.
+     */
+    static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        plays.put("winters-tale", new Play("The Winter's Tale", "pastoral"));
+        return plays;
+    }
+
+    /**
+     * Returns a catalog of {@link #plays()}.
+     */
+    static PlayCatalog catalog() {
+        return new PlayCatalog(plays());
+    }
+
+    /**
+     * Reads a UTF-8 test resource.
+     */
+    static String loadString(String path) {
+        try (InputStream in = Objects.requireNonNull(TestData.class.getClassLoader().getResourceAsStream(path),
+                path)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+
+public class TopKTests {
+
+    // a skewed stream: key i gets weight roughly proportional to 1 / (i + 1)
+    private static List<String> skewedKeys(int keys, int events, long seed) {
+        Random random = new Random(seed);
+        List<String> result = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            int key = (int) Math.floor(Math.pow(keys, random.nextDouble())) - 1;
+            result.add("customer-" + key);
+        }
+        return result;
+    }
+
+    private static Map<String, Long> exactTotals(List<String> keys) {
+        Map<String, Long> totals = new HashMap<>();
+        for (String key : keys) {
+            totals.merge(key, 10L, Long::sum);
+        }
+        return totals;
+    }
+
+    private static List<String> expectedTop(Map<String, Long> totals, int k) {
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(k).map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    private static List<String> keys(List<TopK.Entry> entries) {
+        return entries.stream().map(TopK.Entry::getKey).collect(Collectors.toList());
+    }
+
+    @Test
+    public void exactTopKAndMergeTest() {
+        List<String> stream = skewedKeys(10_000, 100_000, 20);
+        TopK whole = new TopK(25);
+        TopK left = new TopK(25);
+        TopK right = new TopK(25);
+        for (int i = 0; i < stream.size(); i++) {
+            whole.add(stream.get(i), 10);
+            (i % 2 == 0 ? left : right).add(stream.get(i), 10);
+        }
+        Map<String, Long> totals = exactTotals(stream);
+
+        assertEquals(expectedTop(totals, 25), keys(whole.top()));
+        assertEquals(totals.get(whole.top().get(0).getKey()).longValue(), whole.top().get(0).getValue());
+        assertEquals(keys(whole.top()), keys(left.merge(right).top()));
+    }
+
+    @Test
+    public void sketchFindsHeavyHittersTest() {
+        List<String> stream = skewedKeys(100_000, 200_000, 21);
+        Map<String, Long> totals = exactTotals(stream);
+        TopK sketch = new TopK(10, 4096, 5);
+        TopK[] partitions = {new TopK(10, 4096, 5), new TopK(10, 4096, 5), new TopK(10, 4096, 5)};
+        for (int i = 0; i < stream.size(); i++) {
+            sketch.add(stream.get(i), 10);
+            partitions[i % partitions.length].add(stream.get(i), 10);
+        }
+        TopK merged = partitions[0].merge(partitions[1]).merge(partitions[2]);
+
+        assertTrue(sketch.isApproximate());
+        List<String> expected = expectedTop(totals, 5);
+        for (TopK result : new TopK[] {sketch, merged}) {
+            assertEquals(expected, keys(result.top()).subList(0, 5));
+            for (TopK.Entry entry : result.top()) {
+                long actual = totals.get(entry.getKey());
+                assertTrue(entry.getValue() >= actual);
+                assertTrue(entry.getValue() <= actual + 2_000_000L * 3 / 4096);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> sketch.add("refund", -1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new TopK(10, 2048, 5)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new TopK(10)));
+    }
+
+    @Test
+    public void leaderboardsTest() {
+        Map<String, Play> plays = TestData.plays();
+        PlayCatalog catalog = new PlayCatalog(plays);
+        List<Invoice> invoices = new ArrayList<>();
+        Map<String, Long> owed = new HashMap<>();
+        String[] ids = {"hamlet", "as-like", "othello", "macbeth"};
+        Random random = new Random(22);
+        for (int i = 0; i < 3_000; i++) {
+            List<Performance> performances = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                performances.add(new Performance(ids[random.nextInt(ids.length)], random.nextInt(90)));
+            }
+            Invoice invoice = new Invoice("customer-" + random.nextInt(300), performances);
+            invoices.add(invoice);
+            List<Performance> known = performances.stream()
+                    .filter(performance -> plays.containsKey(performance.getPlayID())).collect(Collectors.toList());
+            owed.merge(invoice.getCustomer(),
+                    new StatementPrinter(new Invoice(invoice.getCustomer(), known), plays).getTotalAmountExact(),
+                    Long::sum);
+        }
+
+        Leaderboards exact = Leaderboards.collect(invoices.parallelStream(), () -> new Leaderboards(catalog, 3));
+        Leaderboards approximate = Leaderboards.collect(invoices.stream(),
+                () -> new Leaderboards(catalog, 3, 8192, 5));
+
+        List<String> expected = expectedTop(owed, 3);
+        assertEquals(expected, keys(exact.getTopCustomers()));
+        assertEquals(owed.get(expected.get(0)).longValue(), exact.getTopCustomers().get(0).getValue());
+        assertEquals(expected, keys(approximate.getTopCustomers()));
+        assertEquals(3, exact.getTopPlays().size());
+        assertTrue(exact.getUnknownPerformances() > 0);
+        assertEquals(exact.getUnknownPerformances(), approximate.getUnknownPerformances());
+    }
+}